@@ -3,8 +3,11 @@ package ru.rshalimov.reactnative.common;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableArray;
 
+import android.util.Base64;
+
 import java.lang.reflect.Method;
 
 import java.util.Arrays;
@@ -118,6 +121,12 @@ public class Utils {
       return ar;
    }
    
+   public static byte [] createByteArray(ReadableMap map, String key) {
+      return map.getType(key) == ReadableType.String ?
+         Base64.decode(map.getString(key), Base64.DEFAULT) :
+         createByteArray(map.getArray(key));
+   }
+   
    public static WritableArray writableArrayFrom(byte [] array, boolean signed) {
       final WritableArray wa = Arguments.createArray();
       
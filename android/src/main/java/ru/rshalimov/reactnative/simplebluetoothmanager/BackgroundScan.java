@@ -0,0 +1,247 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.HeadlessJsTaskService;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import android.app.PendingIntent;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import ru.rshalimov.reactnative.common.Utils;
+
+final class BackgroundScan {
+   interface Listener {
+      void onBackgroundScanResults(List <ScanResult> results);
+   }
+   
+   static final String
+      ACTION_SCAN_RESULT = "ru.rshalimov.reactnative.simplebluetoothmanager.SCAN_RESULT",
+      TASK_NAME = "SimpleBluetoothManagerBackgroundScan";
+   
+   private static final String
+      PREFERENCES = "SimpleBluetoothManager.backgroundScan",
+      KEY_ACTIVE = "active",
+      KEY_IDS = "ids",
+      KEY_NAME_PREFIX = "namePrefix",
+      KEY_MIN_RSSI = "minRssi",
+      KEY_MIN_WAKE_INTERVAL = "minWakeIntervalMillis",
+      KEY_TASK_TIMEOUT = "taskTimeoutMillis",
+      KEY_WAKE_JS = "wakeJs",
+      KEY_LAST_WAKE = "lastWake",
+      KEY_NOTIFICATION_TITLE = "notificationTitle",
+      KEY_NOTIFICATION_TEXT = "notificationText";
+   
+   private static final int
+      VERSION_CODE_S = 31,
+      FLAG_MUTABLE = 1 << 25;
+   
+   private static Listener listener;
+   
+   private BackgroundScan() {}
+   
+   static synchronized void setListener(Listener listener) {
+      BackgroundScan.listener = listener;
+   }
+   
+   static synchronized void removeListener(Listener listener) {
+      if (BackgroundScan.listener == listener) {
+         BackgroundScan.listener = null;
+      }
+   }
+   
+   static boolean isActive(Context context) {
+      return getPreferences(context).getBoolean(KEY_ACTIVE, false);
+   }
+   
+   static void start(
+      Context context,
+      List <ScanFilter> filters,
+      ScanSettings settings,
+      ReadableMap criteria,
+      ReadableMap notification)
+   {
+      if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+         throw new IllegalStateException(String.format(
+            "Background scanning requires API %d", Build.VERSION_CODES.O));
+      }
+      
+      final BluetoothLeScanner scanner = getScanner();
+      
+      final ReadableArray ids = Utils.safeGetArray(criteria, "ids");
+      final StringBuilder joinedIds = new StringBuilder();
+      
+      for (int index = 0; ids != null && index < ids.size(); index++) {
+         joinedIds.append(index == 0 ? "" : ",").append(ids.getString(index).toUpperCase());
+      }
+      
+      getPreferences(context).edit()
+         .putBoolean(KEY_ACTIVE, true)
+         .putString(KEY_IDS, joinedIds.toString())
+         .putString(KEY_NAME_PREFIX, Utils.safeGet(criteria, "namePrefix", ""))
+         .putInt(KEY_MIN_RSSI, Utils.safeGet(criteria, "minRssi", Integer.MIN_VALUE))
+         .putLong(KEY_MIN_WAKE_INTERVAL, Utils.safeGet(criteria,
+            "minWakeIntervalMillis", 60000.).longValue())
+         .putLong(KEY_TASK_TIMEOUT, Utils.safeGet(criteria,
+            "taskTimeoutMillis", 10000.).longValue())
+         .putBoolean(KEY_WAKE_JS, Utils.safeGet(criteria, "wakeJs", true))
+         .putLong(KEY_LAST_WAKE, 0)
+         .putString(KEY_NOTIFICATION_TITLE, notification == null ? null :
+            Utils. <String> safeGet(notification, "title", String.class))
+         .putString(KEY_NOTIFICATION_TEXT, notification == null ? null :
+            Utils. <String> safeGet(notification, "text", String.class))
+         .commit();
+      
+      final int errorCode = scanner.startScan(filters, settings, createPendingIntent(context));
+      
+      if (errorCode != 0) {
+         getPreferences(context).edit().putBoolean(KEY_ACTIVE, false).commit();
+         
+         throw new IllegalStateException(String.format(
+            "BluetoothLeScanner.startScan() failed with error code %d", errorCode));
+      }
+   }
+   
+   static void stop(Context context) {
+      getPreferences(context).edit().putBoolean(KEY_ACTIVE, false).commit();
+      
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+         getScanner().stopScan(createPendingIntent(context));
+      }
+   }
+   
+   static void onScanResults(Context context, List <ScanResult> results) {
+      DeviceRegistry.getInstance().update(results);
+      
+      final SharedPreferences preferences = getPreferences(context);
+      
+      if (!preferences.getBoolean(KEY_ACTIVE, false)) {
+         return;
+      }
+      
+      final List <ScanResult> matches = match(preferences, results);
+      
+      if (matches.isEmpty()) {
+         return;
+      }
+      
+      synchronized (BackgroundScan.class) {
+         if (listener != null) {
+            listener.onBackgroundScanResults(matches);
+            
+            return;
+         }
+      }
+      
+      final long now = System.currentTimeMillis();
+      
+      if (!preferences.getBoolean(KEY_WAKE_JS, true)
+         || now - preferences.getLong(KEY_LAST_WAKE, 0) <
+            preferences.getLong(KEY_MIN_WAKE_INTERVAL, 0))
+      {
+         return;
+      }
+      
+      preferences.edit().putLong(KEY_LAST_WAKE, now).apply();
+      
+      final String [] ids = new String[matches.size()];
+      
+      for (int index = 0; index < ids.length; index++) {
+         ids[index] = matches.get(index).getDevice().getAddress();
+      }
+      
+      final Bundle data = new Bundle();
+      
+      data.putStringArray("ids", ids);
+      
+      final Intent intent = new Intent(context, ScanTaskService.class)
+         .putExtra(ScanTaskService.EXTRA_DATA, data)
+         .putExtra(ScanTaskService.EXTRA_TIMEOUT, preferences.getLong(KEY_TASK_TIMEOUT, 10000))
+         .putExtra(ConnectionService.EXTRA_TITLE, preferences.getString(KEY_NOTIFICATION_TITLE, null))
+         .putExtra(ConnectionService.EXTRA_TEXT, preferences.getString(KEY_NOTIFICATION_TEXT, null));
+      
+      try {
+         final ComponentName service = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ?
+            context.startForegroundService(intent) : context.startService(intent);
+         
+         if (service == null) {
+            throw new IllegalStateException("ScanTaskService isn't declared in the manifest");
+         }
+         
+         HeadlessJsTaskService.acquireWakeLockNow(context);
+         
+         Log.d(Module.TAG, String.format("BackgroundScan: woke JS for %s", Arrays.toString(ids)));
+      } catch (IllegalStateException | SecurityException e) {
+         Log.w(Module.TAG, String.format("BackgroundScan: %s", e.getMessage()));
+      }
+   }
+   
+   private static List <ScanResult> match(
+      SharedPreferences preferences,
+      List <ScanResult> results)
+   {
+      final String joinedIds = preferences.getString(KEY_IDS, "");
+      final Set <String> ids = joinedIds.isEmpty() ? null :
+         new HashSet <> (Arrays.asList(joinedIds.split(",")));
+      
+      final String namePrefix = preferences.getString(KEY_NAME_PREFIX, "");
+      final int minRssi = preferences.getInt(KEY_MIN_RSSI, Integer.MIN_VALUE);
+      
+      final List <ScanResult> matches = new ArrayList <> ();
+      
+      for (ScanResult result : results) {
+         String name = result.getDevice().getName();
+         
+         if (name == null && result.getScanRecord() != null) {
+            name = result.getScanRecord().getDeviceName();
+         }
+         
+         if ((ids == null || ids.contains(result.getDevice().getAddress()))
+            && (namePrefix.isEmpty() || (name != null && name.startsWith(namePrefix)))
+            && result.getRssi() >= minRssi)
+         {
+            matches.add(result);
+         }
+      }
+      
+      return matches;
+   }
+   
+   private static BluetoothLeScanner getScanner() {
+      final BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+      
+      if (adapter == null || !adapter.isEnabled()) {
+         throw new IllegalStateException("Bluetooth is not enabled");
+      }
+      
+      return adapter.getBluetoothLeScanner();
+   }
+   
+   private static PendingIntent createPendingIntent(Context context) {
+      return PendingIntent.getBroadcast(context, 0,
+         new Intent(context, ScanReceiver.class).setAction(ACTION_SCAN_RESULT),
+         PendingIntent.FLAG_UPDATE_CURRENT
+            | (Build.VERSION.SDK_INT >= VERSION_CODE_S ? FLAG_MUTABLE : 0));
+   }
+   
+   private static SharedPreferences getPreferences(Context context) {
+      return context.getApplicationContext()
+         .getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+   }
+}
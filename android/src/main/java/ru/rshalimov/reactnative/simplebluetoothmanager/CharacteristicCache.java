@@ -0,0 +1,125 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+final class CharacteristicCache {
+   private static final class Entry {
+      final byte [] value;
+      final long storedAt;
+      
+      Entry(byte [] value, long storedAt) {
+         this.value = value;
+         this.storedAt = storedAt;
+      }
+   }
+   
+   private final Map <String, Long> ttls = new HashMap <> ();
+   private final Map <String, Entry> entries = new HashMap <> ();
+   
+   private long hits;
+   private long misses;
+   private long invalidations;
+   
+   synchronized void configure(String serviceUuid, String characteristicUuid, long ttlMillis) {
+      final String policyKey = getPolicyKey(serviceUuid, characteristicUuid);
+      
+      if (ttlMillis > 0) {
+         ttls.put(policyKey, ttlMillis);
+      } else {
+         ttls.remove(policyKey);
+         
+         for (String key : new ArrayList <> (entries.keySet())) {
+            if (key.endsWith(policyKey)) {
+               entries.remove(key);
+            }
+         }
+      }
+   }
+   
+   synchronized byte [] get(String address, BluetoothGattCharacteristic ch) {
+      final String policyKey = getPolicyKey(ch);
+      final Long ttl = ttls.get(policyKey);
+      
+      if (ttl == null) {
+         return null;
+      }
+      
+      final Entry entry = entries.get(getEntryKey(address, policyKey));
+      
+      if (entry == null || SystemClock.elapsedRealtime() - entry.storedAt >= ttl) {
+         misses++;
+         
+         return null;
+      }
+      
+      hits++;
+      
+      return entry.value.clone();
+   }
+   
+   synchronized void put(String address, BluetoothGattCharacteristic ch, byte [] value) {
+      final String policyKey = getPolicyKey(ch);
+      
+      if (value != null && ttls.containsKey(policyKey)) {
+         entries.put(getEntryKey(address, policyKey),
+            new Entry(value.clone(), SystemClock.elapsedRealtime()));
+      }
+   }
+   
+   synchronized void invalidate(String address, BluetoothGattCharacteristic ch) {
+      if (!entries.isEmpty() && entries.remove(getEntryKey(address, getPolicyKey(ch))) != null) {
+         invalidations++;
+      }
+   }
+   
+   synchronized void invalidate(String address) {
+      final String prefix = getEntryKey(address, "");
+      
+      for (String key : new ArrayList <> (entries.keySet())) {
+         if (key.startsWith(prefix)) {
+            entries.remove(key);
+            invalidations++;
+         }
+      }
+   }
+   
+   synchronized void clear() {
+      entries.clear();
+      
+      hits = 0;
+      misses = 0;
+      invalidations = 0;
+   }
+   
+   synchronized WritableMap getStatistics() {
+      final WritableMap statistics = Arguments.createMap();
+      
+      statistics.putDouble("hits", hits);
+      statistics.putDouble("misses", misses);
+      statistics.putDouble("invalidations", invalidations);
+      statistics.putInt("entries", entries.size());
+      statistics.putInt("characteristics", ttls.size());
+      
+      return statistics;
+   }
+   
+   private static String getPolicyKey(BluetoothGattCharacteristic ch) {
+      return getPolicyKey(ch.getService().getUuid().toString(), ch.getUuid().toString());
+   }
+   
+   private static String getPolicyKey(String serviceUuid, String characteristicUuid) {
+      return String.format("%s/%s", serviceUuid, characteristicUuid).toLowerCase();
+   }
+   
+   private static String getEntryKey(String address, String policyKey) {
+      return String.format("%s/%s", address.toUpperCase(), policyKey);
+   }
+}
@@ -0,0 +1,262 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class ConnectionOwner {
+   private final class GattCallback extends BluetoothGattCallback {
+      @Override
+      public void onConnectionStateChange(
+         BluetoothGatt gatt,
+         int status,
+         int newState)
+      {
+         synchronized (ConnectionOwner.this) {
+            connectionStates.put(gatt.getDevice().getAddress(), newState);
+         }
+         
+         final BluetoothGattCallback callback = getAttachedCallback();
+         
+         if (callback != null) {
+            callback.onConnectionStateChange(gatt, status, newState);
+         }
+      }
+      
+      @Override
+      public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+         final BluetoothGattCallback callback = getAttachedCallback();
+         
+         if (callback != null) {
+            callback.onServicesDiscovered(gatt, status);
+         }
+      }
+      
+      @Override
+      public void onCharacteristicRead(
+         BluetoothGatt gatt,
+         BluetoothGattCharacteristic ch,
+         int status)
+      {
+         final BluetoothGattCallback callback = getAttachedCallback();
+         
+         if (callback != null) {
+            callback.onCharacteristicRead(gatt, ch, status);
+         }
+      }
+      
+      @Override
+      public void onCharacteristicWrite(
+         BluetoothGatt gatt,
+         BluetoothGattCharacteristic ch,
+         int status)
+      {
+         final BluetoothGattCallback callback = getAttachedCallback();
+         
+         if (callback != null) {
+            callback.onCharacteristicWrite(gatt, ch, status);
+         }
+      }
+      
+      @Override
+      public void onCharacteristicChanged(
+         BluetoothGatt gatt,
+         BluetoothGattCharacteristic ch)
+      {
+         final BluetoothGattCallback callback = getAttachedCallback();
+         
+         if (callback != null) {
+            callback.onCharacteristicChanged(gatt, ch);
+         }
+      }
+      
+      @Override
+      public void onDescriptorRead(
+         BluetoothGatt gatt,
+         BluetoothGattDescriptor descriptor,
+         int status)
+      {
+         final BluetoothGattCallback callback = getAttachedCallback();
+         
+         if (callback != null) {
+            callback.onDescriptorRead(gatt, descriptor, status);
+         }
+      }
+      
+      @Override
+      public void onDescriptorWrite(
+         BluetoothGatt gatt,
+         BluetoothGattDescriptor descriptor,
+         int status)
+      {
+         final BluetoothGattCallback callback = getAttachedCallback();
+         
+         if (callback != null) {
+            callback.onDescriptorWrite(gatt, descriptor, status);
+         }
+      }
+      
+      @Override
+      public void onReliableWriteCompleted(BluetoothGatt gatt, int status) {
+         final BluetoothGattCallback callback = getAttachedCallback();
+         
+         if (callback != null) {
+            callback.onReliableWriteCompleted(gatt, status);
+         }
+      }
+      
+      @Override
+      public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status) {
+         final BluetoothGattCallback callback = getAttachedCallback();
+         
+         if (callback != null) {
+            callback.onReadRemoteRssi(gatt, rssi, status);
+         }
+      }
+   }
+   
+   private static ConnectionOwner instance;
+   
+   private final Map <String, BluetoothGatt> gatts = new HashMap <> ();
+   private final Map <String, Map <String, Object>> readOptions = new HashMap <> ();
+   private final Map <String, Integer> connectionStates = new HashMap <> ();
+   private final Map <String, Map <String, Set <String>>> notifications = new HashMap <> ();
+   private final GattCallback gattCallback = new GattCallback();
+   
+   private BluetoothGattCallback attachedCallback;
+   
+   private ConnectionOwner() {}
+   
+   static synchronized ConnectionOwner getInstance() {
+      if (instance == null) {
+         instance = new ConnectionOwner();
+      }
+      
+      return instance;
+   }
+   
+   synchronized void attach(BluetoothGattCallback callback) {
+      attachedCallback = callback;
+   }
+   
+   synchronized void detach(BluetoothGattCallback callback) {
+      if (attachedCallback == callback) {
+         attachedCallback = null;
+      }
+   }
+   
+   synchronized boolean connectGatt(
+      BluetoothDevice device,
+      Context context,
+      boolean autoConnect)
+   {
+      final boolean connect = !gatts.containsKey(device.getAddress());
+      
+      if (connect) {
+         gatts.put(device.getAddress(), device.connectGatt(context, autoConnect, gattCallback));
+      }
+      
+      return connect;
+   }
+   
+   synchronized BluetoothGatt getGatt(String address) {
+      return gatts.get(address);
+   }
+   
+   synchronized List <BluetoothGatt> getGatts() {
+      return new ArrayList <> (gatts.values());
+   }
+   
+   synchronized BluetoothGatt removeGatt(String address) {
+      return gatts.remove(address);
+   }
+   
+   synchronized Map <String, Object> getReadOptions(String key) {
+      return readOptions.get(key);
+   }
+   
+   synchronized void putReadOptions(String key, Map <String, Object> options) {
+      readOptions.put(key, options);
+   }
+   
+   synchronized void removeReadOptions(String key) {
+      readOptions.remove(key);
+   }
+   
+   synchronized int getConnectionState(String address) {
+      final Integer state = connectionStates.get(address);
+      
+      return state == null ? BluetoothProfile.STATE_DISCONNECTED : state;
+   }
+   
+   synchronized void setNotification(
+      String address,
+      String serviceUuid,
+      String characteristicUuid,
+      boolean enable)
+   {
+      Map <String, Set <String>> services = notifications.get(address);
+      
+      if (enable) {
+         if (services == null) {
+            services = new HashMap <> ();
+            notifications.put(address, services);
+         }
+         
+         Set <String> characteristics = services.get(serviceUuid);
+         
+         if (characteristics == null) {
+            characteristics = new LinkedHashSet <> ();
+            services.put(serviceUuid, characteristics);
+         }
+         
+         characteristics.add(characteristicUuid);
+      } else if (services != null) {
+         final Set <String> characteristics = services.get(serviceUuid);
+         
+         if (characteristics != null && characteristics.remove(characteristicUuid)
+            && characteristics.isEmpty())
+         {
+            services.remove(serviceUuid);
+            
+            if (services.isEmpty()) {
+               notifications.remove(address);
+            }
+         }
+      }
+   }
+   
+   synchronized Map <String, Set <String>> getNotifications(String address) {
+      final Map <String, Set <String>> services = notifications.get(address);
+      final Map <String, Set <String>> copy = new HashMap <> ();
+      
+      if (services != null) {
+         for (Map.Entry <String, Set <String>> service : services.entrySet()) {
+            copy.put(service.getKey(), new LinkedHashSet <> (service.getValue()));
+         }
+      }
+      
+      return copy;
+   }
+   
+   synchronized void remove(String address) {
+      gatts.remove(address);
+      connectionStates.remove(address);
+      notifications.remove(address);
+   }
+   
+   private synchronized BluetoothGattCallback getAttachedCallback() {
+      return attachedCallback;
+   }
+}
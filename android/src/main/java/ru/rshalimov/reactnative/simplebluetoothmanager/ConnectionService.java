@@ -0,0 +1,70 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.IBinder;
+
+public class ConnectionService extends Service {
+   static final String
+      EXTRA_TITLE = "title",
+      EXTRA_TEXT = "text";
+   
+   private static final String CHANNEL_ID = "SimpleBluetoothManager";
+   private static final int NOTIFICATION_ID = 0x5b4d;
+   
+   @Override
+   public int onStartCommand(Intent intent, int flags, int startId) {
+      startForeground(NOTIFICATION_ID, createNotification(this, intent));
+      
+      return START_NOT_STICKY;
+   }
+   
+   @Override
+   public IBinder onBind(Intent intent) {
+      return null;
+   }
+   
+   static Notification createNotification(Context context, Intent intent) {
+      final String title = intent == null ? null : intent.getStringExtra(EXTRA_TITLE);
+      final String text = intent == null ? null : intent.getStringExtra(EXTRA_TEXT);
+      
+      final Notification.Builder builder;
+      
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+         ((NotificationManager)context.getSystemService(NOTIFICATION_SERVICE))
+            .createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+               "Bluetooth connections", NotificationManager.IMPORTANCE_LOW));
+         
+         builder = new Notification.Builder(context, CHANNEL_ID);
+      } else {
+         builder = createLegacyBuilder(context);
+      }
+      
+      final Intent launchIntent = context.getPackageManager()
+         .getLaunchIntentForPackage(context.getPackageName());
+      
+      if (launchIntent != null) {
+         builder.setContentIntent(PendingIntent.getActivity(
+            context, 0, launchIntent, PendingIntent.FLAG_UPDATE_CURRENT
+               | (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0)));
+      }
+      
+      return builder
+         .setContentTitle(title == null ? "Bluetooth" : title)
+         .setContentText(text)
+         .setSmallIcon(context.getApplicationInfo().icon)
+         .setOngoing(true)
+         .build();
+   }
+   
+   @SuppressWarnings("deprecation")
+   private static Notification.Builder createLegacyBuilder(Context context) {
+      return new Notification.Builder(context);
+   }
+}
@@ -0,0 +1,228 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.util.Base64;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ru.rshalimov.reactnative.common.Utils;
+
+final class DeviceRegistry {
+   private static final class Entry {
+      final String address;
+      final long firstSeen;
+      
+      String name;
+      int rssi;
+      byte [] scanRecord;
+      long lastSeen;
+      int count;
+      
+      Entry(String address, long firstSeen) {
+         this.address = address;
+         this.firstSeen = firstSeen;
+      }
+      
+      WritableMap toMap(boolean includeScanRecord, boolean scanRecordAsBase64) {
+         final WritableMap device = Arguments.createMap();
+         
+         device.putString("id", address);
+         device.putString("name", name);
+         device.putInt("rssi", rssi);
+         device.putDouble("firstSeen", firstSeen);
+         device.putDouble("lastSeen", lastSeen);
+         device.putInt("count", count);
+         
+         if (includeScanRecord && scanRecord != null) {
+            if (scanRecordAsBase64) {
+               device.putString("scanRecord", Base64.encodeToString(scanRecord, Base64.NO_WRAP));
+            } else {
+               device.putArray("scanRecord", Utils.writableArrayFrom(scanRecord, false));
+            }
+         }
+         
+         return device;
+      }
+   }
+   
+   private static final String
+      SORT_RSSI = "rssi",
+      SORT_FIRST_SEEN = "firstSeen",
+      SORT_LAST_SEEN = "lastSeen",
+      SORT_COUNT = "count";
+   
+   private static DeviceRegistry instance;
+   
+   private final LinkedHashMap <String, Entry> devices =
+      new LinkedHashMap <String, Entry> (16, 0.75f, true)
+   {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry <String, Entry> eldest) {
+         return size() > maxDevices;
+      }
+   };
+   
+   private int maxDevices = 500;
+   private long maxAgeMillis = 10 * 60 * 1000;
+   
+   private DeviceRegistry() {}
+   
+   static synchronized DeviceRegistry getInstance() {
+      if (instance == null) {
+         instance = new DeviceRegistry();
+      }
+      
+      return instance;
+   }
+   
+   synchronized void configure(ReadableMap options) {
+      if (options != null) {
+         maxDevices = Math.max(1, Utils.safeGet(options, "maxDevices", maxDevices));
+         maxAgeMillis = Utils.safeGet(options, "maxAgeMillis", (double)maxAgeMillis).longValue();
+      }
+      
+      while (devices.size() > maxDevices) {
+         devices.remove(devices.keySet().iterator().next());
+      }
+      
+      evictExpired(System.currentTimeMillis());
+   }
+   
+   synchronized void clear() {
+      devices.clear();
+   }
+   
+   synchronized void update(List <ScanResult> results) {
+      final long now = System.currentTimeMillis();
+      
+      for (ScanResult result : results) {
+         final String address = result.getDevice().getAddress();
+         final ScanRecord scanRecord = result.getScanRecord();
+         
+         Entry entry = devices.get(address);
+         
+         if (entry == null) {
+            entry = new Entry(address, now);
+            devices.put(address, entry);
+         }
+         
+         final String name = result.getDevice().getName();
+         
+         if (name != null) {
+            entry.name = name;
+         } else if (scanRecord != null && scanRecord.getDeviceName() != null) {
+            entry.name = scanRecord.getDeviceName();
+         }
+         
+         if (scanRecord != null) {
+            entry.scanRecord = scanRecord.getBytes();
+         }
+         
+         entry.rssi = result.getRssi();
+         entry.lastSeen = now;
+         entry.count++;
+      }
+      
+      evictExpired(now);
+   }
+   
+   synchronized WritableMap query(ReadableMap query) {
+      final long now = System.currentTimeMillis();
+      
+      evictExpired(now);
+      
+      final ReadableArray ids = Utils.safeGetArray(query, "ids");
+      final Set <String> addresses = ids == null ? null : new HashSet <String> ();
+      
+      if (ids != null) {
+         for (int index = 0; index < ids.size(); index++) {
+            addresses.add(ids.getString(index).toUpperCase());
+         }
+      }
+      
+      final String namePrefix = Utils.safeGet(query, "namePrefix", String.class);
+      final Integer minRssi = Utils.safeGet(query, "minRssi", Integer.class);
+      final Double seenWithinMillis = Utils.safeGet(query, "seenWithinMillis", Double.class);
+      
+      final List <Entry> matches = new ArrayList <> ();
+      
+      for (Entry entry : devices.values()) {
+         if ((addresses == null || addresses.contains(entry.address))
+            && (namePrefix == null || (entry.name != null && entry.name.startsWith(namePrefix)))
+            && (minRssi == null || entry.rssi >= minRssi)
+            && (seenWithinMillis == null || now - entry.lastSeen <= seenWithinMillis))
+         {
+            matches.add(entry);
+         }
+      }
+      
+      final String sortBy = Utils.safeGet(query, "sortBy", SORT_LAST_SEEN);
+      final boolean descending = Utils.safeGet(query, "descending", true);
+      
+      if (!sortBy.equals(SORT_RSSI) && !sortBy.equals(SORT_FIRST_SEEN)
+         && !sortBy.equals(SORT_LAST_SEEN) && !sortBy.equals(SORT_COUNT))
+      {
+         throw new IllegalArgumentException(String.format(
+            "Unknown sortBy value '%s'", sortBy));
+      }
+      
+      Collections.sort(matches, new Comparator <Entry> () {
+         @Override
+         public int compare(Entry e1, Entry e2) {
+            final int result =
+               sortBy.equals(SORT_RSSI) ? Integer.compare(e1.rssi, e2.rssi) :
+               sortBy.equals(SORT_FIRST_SEEN) ? Long.compare(e1.firstSeen, e2.firstSeen) :
+               sortBy.equals(SORT_COUNT) ? Integer.compare(e1.count, e2.count) :
+               Long.compare(e1.lastSeen, e2.lastSeen);
+            
+            return descending ? -result : result;
+         }
+      });
+      
+      final int offset = Math.max(0, Utils.safeGet(query, "offset", 0));
+      final int limit = Utils.safeGet(query, "limit", 50);
+      final boolean includeScanRecord = Utils.safeGet(query, "includeScanRecord", false);
+      final boolean scanRecordAsBase64 = Utils.safeGet(query, "scanRecordAsBase64", false);
+      
+      final int end = limit <= 0 ? matches.size() : (int)Math.min((long)offset + limit, matches.size());
+      
+      final WritableArray page = Arguments.createArray();
+      
+      for (int index = offset; index < end; index++) {
+         page.pushMap(matches.get(index).toMap(includeScanRecord, scanRecordAsBase64));
+      }
+      
+      final WritableMap result = Arguments.createMap();
+      
+      result.putInt("total", matches.size());
+      result.putInt("offset", offset);
+      result.putArray("devices", page);
+      
+      return result;
+   }
+   
+   private void evictExpired(long now) {
+      if (maxAgeMillis > 0) {
+         final Iterator <Entry> iterator = devices.values().iterator();
+         
+         while (iterator.hasNext() && now - iterator.next().lastSeen > maxAgeMillis) {
+            iterator.remove();
+         }
+      }
+   }
+}
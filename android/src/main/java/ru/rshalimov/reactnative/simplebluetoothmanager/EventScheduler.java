@@ -0,0 +1,199 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.RCTNativeAppEventEmitter;
+
+import java.util.ArrayDeque;
+
+import ru.rshalimov.reactnative.common.Utils;
+
+final class EventScheduler {
+   private static final class Event {
+      final String name;
+      final WritableMap params;
+      
+      Event(String name, WritableMap params) {
+         this.name = name;
+         this.params = params;
+      }
+   }
+   
+   private static final class Channel {
+      final String name;
+      final ArrayDeque <Event> events = new ArrayDeque <> ();
+      
+      int capacity;
+      String policy = DROP_OLDEST;
+      int sampleInterval = 4;
+      int overflowCount;
+      long emitted;
+      long dropped;
+      
+      Channel(String name, int capacity) {
+         this.name = name;
+         this.capacity = capacity;
+      }
+      
+      void offer(Event event) {
+         if (capacity <= 0 || events.size() < capacity) {
+            events.add(event);
+         } else {
+            dropped++;
+            
+            if (policy.equals(DROP_OLDEST) || ++overflowCount % sampleInterval == 0) {
+               events.poll();
+               events.add(event);
+            }
+         }
+      }
+      
+      void configure(ReadableMap options) {
+         if (options != null) {
+            capacity = Utils.safeGet(options, "capacity", capacity);
+            sampleInterval = Math.max(1, Utils.safeGet(options, "sampleInterval", sampleInterval));
+            
+            final String p = Utils.safeGet(options, "policy", policy);
+            
+            if (!p.equals(DROP_OLDEST) && !p.equals(SAMPLE)) {
+               throw new IllegalArgumentException(String.format(
+                  "Unknown %s policy '%s'", name, p));
+            }
+            
+            policy = p;
+         }
+      }
+      
+      WritableMap getStatistics() {
+         final WritableMap statistics = Arguments.createMap();
+         
+         statistics.putDouble("emitted", emitted);
+         statistics.putDouble("dropped", dropped);
+         statistics.putInt("queued", events.size());
+         
+         return statistics;
+      }
+   }
+   
+   static final int
+      PRIORITY_STATE = 0,
+      PRIORITY_GATT = 1,
+      PRIORITY_NOTIFICATION = 2,
+      PRIORITY_SCAN = 3;
+   
+   static final String
+      DROP_OLDEST = "dropOldest",
+      SAMPLE = "sample";
+   
+   private final ReactApplicationContext reactContext;
+   
+   private final Channel [] channels = {
+      new Channel("state", 0),
+      new Channel("gatt", 0),
+      new Channel("notifications", 0),
+      new Channel("scanResults", 256)
+   };
+   
+   private final Runnable onBatchProcessed = new Runnable() {
+      @Override
+      public void run() {
+         synchronized (EventScheduler.this) {
+            pendingBatches--;
+            
+            drain();
+         }
+      }
+   };
+   
+   private int batchSize = 32;
+   private int maxPendingBatches = 2;
+   private int pendingBatches;
+   
+   EventScheduler(ReactApplicationContext reactContext) {
+      this.reactContext = reactContext;
+   }
+   
+   synchronized void emit(int priority, String eventName, WritableMap params) {
+      final Event event = new Event(eventName, params);
+      
+      if (priority < PRIORITY_NOTIFICATION) {
+         send(channels[priority], event);
+      } else {
+         channels[priority].offer(event);
+         
+         drain();
+      }
+   }
+   
+   synchronized void configure(ReadableMap options) {
+      if (options != null) {
+         batchSize = Math.max(1, Utils.safeGet(options, "batchSize", batchSize));
+         maxPendingBatches = Math.max(1, Utils.safeGet(options, "maxPendingBatches", maxPendingBatches));
+         
+         for (int priority = PRIORITY_NOTIFICATION; priority < channels.length; priority++) {
+            channels[priority].configure(Utils.safeGetMap(options, channels[priority].name));
+         }
+      }
+   }
+   
+   synchronized WritableMap getStatistics() {
+      final WritableMap statistics = Arguments.createMap();
+      
+      for (Channel channel : channels) {
+         statistics.putMap(channel.name, channel.getStatistics());
+      }
+      
+      statistics.putInt("pendingBatches", pendingBatches);
+      
+      return statistics;
+   }
+   
+   private void drain() {
+      if (!reactContext.hasActiveCatalystInstance()) {
+         for (int priority = PRIORITY_NOTIFICATION; priority < channels.length; priority++) {
+            channels[priority].dropped += channels[priority].events.size();
+            channels[priority].events.clear();
+         }
+         
+         return;
+      }
+      
+      while (pendingBatches < maxPendingBatches) {
+         int sent = 0;
+         
+         for (int priority = PRIORITY_NOTIFICATION;
+            priority < channels.length && sent < batchSize;
+            priority++)
+         {
+            final Channel channel = channels[priority];
+            
+            while (!channel.events.isEmpty() && sent < batchSize) {
+               send(channel, channel.events.poll());
+               sent++;
+            }
+         }
+         
+         if (sent == 0) {
+            break;
+         }
+         
+         pendingBatches++;
+         
+         reactContext.runOnJSQueueThread(onBatchProcessed);
+      }
+   }
+   
+   private void send(Channel channel, Event event) {
+      if (reactContext.hasActiveCatalystInstance()) {
+         reactContext
+            .getJSModule(RCTNativeAppEventEmitter.class)
+            .emit(event.name, event.params);
+         
+         channel.emitted++;
+      } else {
+         channel.dropped++;
+      }
+   }
+}
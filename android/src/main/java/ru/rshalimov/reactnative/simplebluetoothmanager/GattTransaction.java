@@ -0,0 +1,159 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.os.Handler;
+
+abstract class GattTransaction {
+   interface Callback {
+      void onFinished(
+         GattTransaction transaction,
+         int status,
+         String error,
+         WritableMap result);
+   }
+   
+   interface OperationListener {
+      void onOperationIssued(GattTransaction transaction);
+   }
+   
+   private static final int MAX_BUSY_RETRIES = 5;
+   private static final long BUSY_RETRY_DELAY_MILLIS = 50;
+   
+   protected final BluetoothGatt gatt;
+   
+   private final Callback callback;
+   
+   private final Runnable watchdog = new Runnable() {
+      @Override
+      public void run() {
+         if (!isFinished()) {
+            fail(BluetoothGatt.GATT_FAILURE, String.format(
+               "Transaction for '%s' timed out after %d ms", getAddress(), watchdogMillis));
+         }
+      }
+   };
+   
+   private Callback queueCallback;
+   private OperationListener operationListener;
+   private Handler watchdogHandler;
+   private long watchdogMillis;
+   private int busyRetries;
+   private boolean finished;
+   
+   GattTransaction(BluetoothGatt gatt, Callback callback) {
+      this.gatt = gatt;
+      this.callback = callback;
+   }
+   
+   String getAddress() {
+      return gatt.getDevice().getAddress();
+   }
+   
+   synchronized boolean isFinished() {
+      return finished;
+   }
+   
+   void setQueueCallback(Callback queueCallback) {
+      this.queueCallback = queueCallback;
+   }
+   
+   void setOperationListener(OperationListener operationListener) {
+      this.operationListener = operationListener;
+   }
+   
+   void setWatchdog(Handler watchdogHandler, long watchdogMillis) {
+      this.watchdogHandler = watchdogHandler;
+      this.watchdogMillis = watchdogMillis;
+   }
+   
+   void armWatchdog() {
+      if (watchdogHandler != null && watchdogMillis > 0) {
+         watchdogHandler.removeCallbacks(watchdog);
+         watchdogHandler.postDelayed(watchdog, watchdogMillis);
+      }
+   }
+   
+   abstract void start();
+   
+   boolean onCharacteristicRead(BluetoothGattCharacteristic ch, int status) {
+      return false;
+   }
+   
+   boolean onCharacteristicWrite(BluetoothGattCharacteristic ch, int status) {
+      return false;
+   }
+   
+   boolean onCharacteristicChanged(BluetoothGattCharacteristic ch) {
+      return false;
+   }
+   
+   boolean onDescriptorRead(BluetoothGattDescriptor descriptor, int status) {
+      return false;
+   }
+   
+   boolean onDescriptorWrite(BluetoothGattDescriptor descriptor, int status) {
+      return false;
+   }
+   
+   boolean onReliableWriteCompleted(int status) {
+      return false;
+   }
+   
+   boolean onReadRemoteRssi(int rssi, int status) {
+      return false;
+   }
+   
+   void fail(int status, String error) {
+      finish(status, error, null);
+   }
+   
+   protected final boolean retryWhenBusy(Runnable retry) {
+      if (watchdogHandler == null || busyRetries == MAX_BUSY_RETRIES) {
+         return false;
+      }
+      
+      busyRetries++;
+      
+      watchdogHandler.postDelayed(retry, BUSY_RETRY_DELAY_MILLIS * busyRetries);
+      
+      return true;
+   }
+   
+   protected final void operationIssued() {
+      busyRetries = 0;
+      
+      armWatchdog();
+      
+      if (operationListener != null) {
+         operationListener.onOperationIssued(this);
+      }
+   }
+   
+   protected final void disarmWatchdog() {
+      if (watchdogHandler != null) {
+         watchdogHandler.removeCallbacks(watchdog);
+      }
+   }
+   
+   protected final void finish(int status, String error, WritableMap result) {
+      synchronized (this) {
+         if (finished) {
+            return;
+         }
+         
+         finished = true;
+      }
+      
+      disarmWatchdog();
+      
+      callback.onFinished(this, status, error, result);
+      
+      if (queueCallback != null) {
+         queueCallback.onFinished(this, status, error, result);
+      }
+   }
+}
@@ -0,0 +1,239 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Promise;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import android.util.Base64;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+final class L2capChannel {
+   interface Listener {
+      void onData(L2capChannel channel, String data);
+      void onClosed(L2capChannel channel, String error);
+   }
+   
+   static final int MIN_SDK_VERSION = 29;
+   
+   private final int id;
+   private final BluetoothSocket socket;
+   private final Listener listener;
+   private final int readBufferSize;
+   private final int highWaterMark;
+   private final int lowWaterMark;
+   private final int maxPendingChunks;
+   private final ArrayDeque <byte []> writeQueue = new ArrayDeque <> ();
+   private final List <Promise> blockedWrites = new ArrayList <> ();
+   private final Object readLock = new Object();
+   
+   private int queuedBytes;
+   private int pendingChunks;
+   private boolean closed;
+   
+   L2capChannel(
+      int id,
+      BluetoothSocket socket,
+      int readBufferSize,
+      int highWaterMark,
+      int lowWaterMark,
+      int maxPendingChunks,
+      Listener listener)
+   {
+      this.id = id;
+      this.socket = socket;
+      this.listener = listener;
+      this.readBufferSize = Math.max(1, readBufferSize > 0 ?
+         readBufferSize : socket.getMaxReceivePacketSize());
+      this.highWaterMark = highWaterMark;
+      this.lowWaterMark = Math.min(highWaterMark, lowWaterMark);
+      this.maxPendingChunks = Math.max(1, maxPendingChunks);
+   }
+   
+   static BluetoothSocket createSocket(
+      BluetoothDevice device,
+      int psm,
+      boolean secure) throws IOException
+   {
+      try {
+         return (BluetoothSocket)BluetoothDevice.class.getMethod(secure ?
+            "createL2capChannel" : "createInsecureL2capChannel", int.class)
+               .invoke(device, psm);
+      } catch (InvocationTargetException e) {
+         if (e.getCause() instanceof IOException) {
+            throw (IOException)e.getCause();
+         }
+         
+         throw new IllegalStateException(e.getCause());
+      } catch (ReflectiveOperationException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+   
+   int getId() {
+      return id;
+   }
+   
+   void start() {
+      new Thread(new Runnable() {
+         @Override
+         public void run() {
+            read();
+         }
+      }, String.format("L2capChannel-%d-reader", id)).start();
+      
+      new Thread(new Runnable() {
+         @Override
+         public void run() {
+            write();
+         }
+      }, String.format("L2capChannel-%d-writer", id)).start();
+   }
+   
+   void write(byte [] data, Promise promise) {
+      synchronized (writeQueue) {
+         if (closed) {
+            promise.reject("", String.format("L2CAP channel %d is closed", id));
+            
+            return;
+         }
+         
+         writeQueue.add(data);
+         queuedBytes += data.length;
+         
+         writeQueue.notify();
+         
+         if (queuedBytes <= highWaterMark) {
+            promise.resolve(queuedBytes);
+         } else {
+            blockedWrites.add(promise);
+         }
+      }
+   }
+   
+   void acknowledge() {
+      synchronized (readLock) {
+         pendingChunks--;
+         
+         readLock.notify();
+      }
+   }
+   
+   void close(String error) {
+      final List <Promise> rejected;
+      
+      synchronized (writeQueue) {
+         if (closed) {
+            return;
+         }
+         
+         closed = true;
+         
+         writeQueue.clear();
+         writeQueue.notify();
+         
+         rejected = new ArrayList <> (blockedWrites);
+         blockedWrites.clear();
+      }
+      
+      synchronized (readLock) {
+         readLock.notify();
+      }
+      
+      try {
+         socket.close();
+      } catch (IOException e) {
+         Log.w(Module.TAG, String.format("L2capChannel %d: close() failed", id), e);
+      }
+      
+      for (Promise promise : rejected) {
+         promise.reject("", String.format("L2CAP channel %d was closed", id));
+      }
+      
+      listener.onClosed(this, error);
+   }
+   
+   private void read() {
+      final byte [] buffer = new byte[readBufferSize];
+      
+      try {
+         final InputStream in = socket.getInputStream();
+         
+         for (int count; (count = in.read(buffer)) != -1; ) {
+            if (count != 0) {
+               synchronized (readLock) {
+                  pendingChunks++;
+               }
+               
+               listener.onData(this, Base64.encodeToString(buffer, 0, count, Base64.NO_WRAP));
+               
+               synchronized (readLock) {
+                  while (pendingChunks >= maxPendingChunks && !isClosed()) {
+                     readLock.wait();
+                  }
+               }
+            }
+         }
+         
+         close(null);
+      } catch (IOException e) {
+         close(isClosed() ? null : e.getMessage());
+      } catch (InterruptedException e) {
+         close(e.getMessage());
+      }
+   }
+   
+   private void write() {
+      try {
+         final OutputStream out = socket.getOutputStream();
+         
+         while (true) {
+            final byte [] data;
+            
+            synchronized (writeQueue) {
+               while (!closed && writeQueue.isEmpty()) {
+                  writeQueue.wait();
+               }
+               
+               if (closed) {
+                  break;
+               }
+               
+               data = writeQueue.peek();
+            }
+            
+            out.write(data);
+            
+            synchronized (writeQueue) {
+               writeQueue.poll();
+               queuedBytes -= data.length;
+               
+               if (queuedBytes <= lowWaterMark) {
+                  for (Promise promise : blockedWrites) {
+                     promise.resolve(queuedBytes);
+                  }
+                  
+                  blockedWrites.clear();
+               }
+            }
+         }
+      } catch (IOException e) {
+         close(isClosed() ? null : e.getMessage());
+      } catch (InterruptedException e) {
+         close(e.getMessage());
+      }
+   }
+   
+   private boolean isClosed() {
+      synchronized (writeQueue) {
+         return closed;
+      }
+   }
+}
@@ -0,0 +1,174 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGatt;
+import android.os.SystemClock;
+
+import ru.rshalimov.reactnative.common.Utils;
+
+final class LinkMonitor {
+   interface Listener {
+      void onLinkQualityChanged(LinkMonitor monitor, WritableMap params);
+   }
+   
+   private final String address;
+   private final Listener listener;
+   private final int intervalMillis;
+   private final double alpha;
+   private final double hysteresis;
+   private final double failureRateThreshold;
+   private final int [] rssiThresholds;
+   
+   private double rssi = Double.NaN;
+   private int rawRssi;
+   private int level = -1;
+   private double failureRate;
+   private double roundTripMillis = Double.NaN;
+   private boolean degraded;
+   private long operationStartedAt = -1;
+   private boolean rssiPending;
+   private boolean paused;
+   
+   LinkMonitor(String address, ReadableMap options, Listener listener) {
+      this.address = address;
+      this.listener = listener;
+      
+      intervalMillis = Math.max(100, Utils.safeGet(options, "intervalMillis", 2000));
+      alpha = Utils.safeGet(options, "alpha", 0.3);
+      hysteresis = Utils.safeGet(options, "hysteresis", 3.0);
+      failureRateThreshold = Utils.safeGet(options, "failureRateThreshold", 0.2);
+      
+      final ReadableArray thresholds = Utils.safeGetArray(options, "rssiThresholds");
+      
+      if (thresholds == null) {
+         rssiThresholds = new int [] { -90, -80, -70 };
+      } else {
+         rssiThresholds = new int[thresholds.size()];
+         
+         for (int index = 0; index < rssiThresholds.length; index++) {
+            rssiThresholds[index] = thresholds.getInt(index);
+            
+            if (index != 0 && rssiThresholds[index] <= rssiThresholds[index - 1]) {
+               throw new IllegalArgumentException(
+                  "rssiThresholds must be in ascending order");
+            }
+         }
+      }
+   }
+   
+   String getAddress() {
+      return address;
+   }
+   
+   int getIntervalMillis() {
+      return intervalMillis;
+   }
+   
+   synchronized void setPaused(boolean paused) {
+      this.paused = paused;
+      
+      rssiPending = false;
+   }
+   
+   synchronized boolean beginRssiRead() {
+      final boolean begin = !paused && !rssiPending;
+      
+      if (begin) {
+         rssiPending = true;
+      }
+      
+      return begin;
+   }
+   
+   synchronized void onRssi(int status, int value) {
+      rssiPending = false;
+      
+      if (status == BluetoothGatt.GATT_SUCCESS) {
+         rawRssi = value;
+         rssi = Double.isNaN(rssi) ? value : alpha * value + (1 - alpha) * rssi;
+         
+         int newLevel = level == -1 ? 0 : level;
+         
+         while (newLevel < rssiThresholds.length && rssi >=
+            rssiThresholds[newLevel] + (level == -1 ? 0 : hysteresis))
+         {
+            newLevel++;
+         }
+         
+         while (newLevel > 0 && rssi <
+            rssiThresholds[newLevel - 1] - (level == -1 ? 0 : hysteresis))
+         {
+            newLevel--;
+         }
+         
+         if (newLevel != level) {
+            level = newLevel;
+            
+            notifyListener("rssi");
+         }
+      }
+   }
+   
+   synchronized void onOperationStarted() {
+      operationStartedAt = SystemClock.elapsedRealtime();
+   }
+   
+   synchronized void onOperationCompleted(int status) {
+      if (operationStartedAt != -1) {
+         final long millis = SystemClock.elapsedRealtime() - operationStartedAt;
+         
+         roundTripMillis = Double.isNaN(roundTripMillis) ?
+            millis : alpha * millis + (1 - alpha) * roundTripMillis;
+         
+         operationStartedAt = -1;
+      }
+      
+      failureRate = alpha * (status == BluetoothGatt.GATT_SUCCESS ? 0 : 1)
+         + (1 - alpha) * failureRate;
+      
+      final boolean newDegraded = degraded ?
+         failureRate >= failureRateThreshold / 2 :
+         failureRate >= failureRateThreshold;
+      
+      if (newDegraded != degraded) {
+         degraded = newDegraded;
+         
+         notifyListener("failureRate");
+      }
+   }
+   
+   synchronized WritableMap getState() {
+      final WritableMap state = Arguments.createMap();
+      
+      state.putString("id", address);
+      
+      if (!Double.isNaN(rssi)) {
+         state.putDouble("rssi", rssi);
+         state.putInt("rawRssi", rawRssi);
+      }
+      
+      state.putInt("level", level);
+      state.putDouble("failureRate", failureRate);
+      
+      if (!Double.isNaN(roundTripMillis)) {
+         state.putDouble("roundTripMillis", roundTripMillis);
+      }
+      
+      state.putBoolean("degraded", degraded);
+      state.putBoolean("paused", paused);
+      
+      return state;
+   }
+   
+   private void notifyListener(String reason) {
+      final WritableMap params = getState();
+      
+      params.putString("reason", reason);
+      
+      listener.onLinkQualityChanged(this, params);
+   }
+}
@@ -7,9 +7,9 @@ import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.modules.core.RCTNativeAppEventEmitter;
 
 import android.util.Log;
 
@@ -21,19 +21,34 @@ import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothProfile;
+import android.bluetooth.BluetoothSocket;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanRecord;
 import android.bluetooth.le.ScanResult;
 import android.bluetooth.le.ScanSettings;
 
+import android.content.Context;
+import android.content.Intent;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import android.util.Base64;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.StringBuilder;
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
 import java.util.UUID;
 
 import ru.rshalimov.reactnative.common.Utils;
@@ -59,6 +74,18 @@ class Module extends ReactContextBaseJavaModule {
             newState == BluetoothProfile.STATE_DISCONNECTING ? DISCONNECTING :
             null;
          
+         final LinkMonitor monitor = getLinkMonitor(gatt.getDevice().getAddress());
+         
+         if (monitor != null) {
+            monitor.setPaused(newState != BluetoothProfile.STATE_CONNECTED);
+         }
+         
+         if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+            failTransactions(gatt.getDevice().getAddress());
+            
+            characteristicCache.invalidate(gatt.getDevice().getAddress());
+         }
+         
          if (eventName != null) {
             emit(eventName, putCommonGattParams(gatt, status));
          }
@@ -82,7 +109,17 @@ class Module extends ReactContextBaseJavaModule {
       {
          super.onCharacteristicRead(gatt, ch, status);
          
-         onReadWrittenChanged(gatt, ch, Boolean.TRUE, status);
+         onOperationCompleted(gatt, status);
+         
+         if (status == BluetoothGatt.GATT_SUCCESS) {
+            characteristicCache.put(gatt.getDevice().getAddress(), ch, ch.getValue());
+         }
+         
+         final GattTransaction transaction = getActiveTransaction(gatt);
+         
+         if (transaction == null || !transaction.onCharacteristicRead(ch, status)) {
+            onReadWrittenChanged(gatt, ch, Boolean.TRUE, status);
+         }
       }
       
       @Override
@@ -93,7 +130,15 @@ class Module extends ReactContextBaseJavaModule {
       {
          super.onCharacteristicWrite(gatt, ch, status);
          
-         onReadWrittenChanged(gatt, ch, Boolean.FALSE, status);
+         onOperationCompleted(gatt, status);
+         
+         characteristicCache.invalidate(gatt.getDevice().getAddress(), ch);
+         
+         final GattTransaction transaction = getActiveTransaction(gatt);
+         
+         if (transaction == null || !transaction.onCharacteristicWrite(ch, status)) {
+            onReadWrittenChanged(gatt, ch, Boolean.FALSE, status);
+         }
       }
       
       @Override
@@ -103,7 +148,15 @@ class Module extends ReactContextBaseJavaModule {
       {
          super.onCharacteristicChanged(gatt, ch);
          
-         onReadWrittenChanged(gatt, ch, null, BluetoothGatt.GATT_SUCCESS);
+         characteristicCache.invalidate(gatt.getDevice().getAddress(), ch);
+         
+         final GattTransaction transaction = getActiveTransaction(gatt);
+         
+         if ((transaction == null || !transaction.onCharacteristicChanged(ch))
+            && !aggregate(gatt, ch))
+         {
+            onReadWrittenChanged(gatt, ch, null, BluetoothGatt.GATT_SUCCESS);
+         }
       }
       
       @Override
@@ -114,7 +167,13 @@ class Module extends ReactContextBaseJavaModule {
       {
          super.onDescriptorRead(gatt, descriptor, status);
          
-         onReadWrittenChanged(gatt, descriptor, Boolean.TRUE, status);
+         onOperationCompleted(gatt, status);
+         
+         final GattTransaction transaction = getActiveTransaction(gatt);
+         
+         if (transaction == null || !transaction.onDescriptorRead(descriptor, status)) {
+            onReadWrittenChanged(gatt, descriptor, Boolean.TRUE, status);
+         }
       }
       
       @Override
@@ -125,22 +184,67 @@ class Module extends ReactContextBaseJavaModule {
       {
          super.onDescriptorWrite(gatt, descriptor, status);
          
-         onReadWrittenChanged(gatt, descriptor, Boolean.FALSE, status);
+         onOperationCompleted(gatt, status);
+         
+         final GattTransaction transaction = getActiveTransaction(gatt);
+         
+         if (transaction == null || !transaction.onDescriptorWrite(descriptor, status)) {
+            onReadWrittenChanged(gatt, descriptor, Boolean.FALSE, status);
+         }
+      }
+      
+      @Override
+      public void onReliableWriteCompleted(BluetoothGatt gatt, int status) {
+         super.onReliableWriteCompleted(gatt, status);
+         
+         Log.d(Module.TAG, String.format("onReliableWriteCompleted('%s', %d)",
+            gatt.getDevice().getAddress(), status));
+         
+         final GattTransaction transaction = getActiveTransaction(gatt);
+         
+         if (transaction == null || !transaction.onReliableWriteCompleted(status)) {
+            emit(RELIABLE_WRITE_COMPLETED, putCommonGattParams(gatt, status));
+         }
+      }
+      
+      @Override
+      public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status) {
+         super.onReadRemoteRssi(gatt, rssi, status);
+         
+         final GattTransaction transaction = getActiveTransaction(gatt);
+         
+         if (transaction == null || !transaction.onReadRemoteRssi(rssi, status)) {
+            Log.d(Module.TAG, String.format("onReadRemoteRssi('%s', %d, %d)",
+               gatt.getDevice().getAddress(), rssi, status));
+            
+            final WritableMap params = putCommonGattParams(gatt, status);
+            
+            params.putInt("rssi", rssi);
+            
+            emit(RSSI_READ, params);
+         }
       }
    }
    
    private final class ScanCallback extends android.bluetooth.le.ScanCallback {
       @Override
       public void onBatchScanResults(List <ScanResult> results) {
-         final WritableMap params = wrapScanResults(results);
-         
-         params.putBoolean("isBatch", true);
+         deviceRegistry.update(results);
          
-         emit(SCAN_RESULT, params);
+         if (emitScanResults) {
+            final WritableMap params = columnarBatches ?
+               wrapScanResultsColumnar(results) : wrapScanResults(results);
+            
+            params.putBoolean("isBatch", true);
+            
+            emit(SCAN_RESULT, params);
+         }
       }
       
       @Override
       public void onScanFailed(int errorCode) {
+         scanScheduler.onScanFailed(errorCode);
+         
          final WritableMap params = Arguments.createMap();
          
          params.putInt("errorCode", errorCode);
@@ -150,11 +254,17 @@ class Module extends ReactContextBaseJavaModule {
       
       @Override
       public void onScanResult(int callbackType, ScanResult result) {
-         final WritableMap params = wrapScanResults(Arrays.asList(result));
+         final List <ScanResult> results = Arrays.asList(result);
          
-         params.putInt("callbackType", callbackType);
+         deviceRegistry.update(results);
          
-         emit(SCAN_RESULT, params);
+         if (emitScanResults) {
+            final WritableMap params = wrapScanResults(results);
+            
+            params.putInt("callbackType", callbackType);
+            
+            emit(SCAN_RESULT, params);
+         }
       }
    }
    
@@ -210,7 +320,7 @@ class Module extends ReactContextBaseJavaModule {
       }
    }
    
-   private static final String
+   static final String
       TAG = "SimpleBluetoothManager",
       CONNECTED = "CONNECTED",
       CONNECTING = "CONNECTING",
@@ -222,8 +332,25 @@ class Module extends ReactContextBaseJavaModule {
       CHARACTERISTIC_CHANGED = "CHARACTERISTIC_CHANGED",
       DESCRIPTOR_READ = "DESCRIPTOR_READ",
       DESCRIPTOR_WRITTEN = "DESCRIPTOR_WRITTEN",
+      RELIABLE_WRITE_COMPLETED = "RELIABLE_WRITE_COMPLETED",
+      WRITE_SET_COMPLETED = "WRITE_SET_COMPLETED",
+      RSSI_READ = "RSSI_READ",
+      LINK_QUALITY = "LINK_QUALITY",
+      NOTIFICATION_AGGREGATE = "NOTIFICATION_AGGREGATE",
       SCAN_FAILED = "SCAN_FAILED",
-      SCAN_RESULT = "SCAN_RESULT";
+      SCAN_RESULT = "SCAN_RESULT",
+      SCAN_STATE = "SCAN_STATE",
+      BACKGROUND_SCAN_RESULT = "BACKGROUND_SCAN_RESULT",
+      L2CAP_DATA = "L2CAP_DATA",
+      L2CAP_CLOSED = "L2CAP_CLOSED";
+   
+   private static final String
+      BATCH_FORMAT_ROWS = "rows",
+      BATCH_FORMAT_COLUMNAR = "columnar";
+   
+   private static final long
+      TRANSACTION_TIMEOUT_MILLIS = 30000,
+      RSSI_TIMEOUT_MILLIS = 1000;
    
    private static final WriteCharacteristicDescriptorData
       writeCharacteristicData = new WriteCharacteristicDescriptorData(true);
@@ -231,15 +358,130 @@ class Module extends ReactContextBaseJavaModule {
    private static final WriteCharacteristicDescriptorData
       writeDescriptorData = new WriteCharacteristicDescriptorData(false);
    
-   private final Map <String, BluetoothGatt> gatts = new HashMap <> ();
-   private final Map <String, Map <String, Object>> readOptions = new HashMap <> ();
+   private final ConnectionOwner connectionOwner = ConnectionOwner.getInstance();
+   private final DeviceRegistry deviceRegistry = DeviceRegistry.getInstance();
+   private final Map <String, ArrayDeque <GattTransaction>> transactions = new HashMap <> ();
+   private final Map <String, LinkMonitor> linkMonitors = new HashMap <> ();
+   private final Map <String, NotificationAggregator> aggregators = new HashMap <> ();
+   private final CharacteristicCache characteristicCache = new CharacteristicCache();
+   private final Map <Integer, L2capChannel> l2capChannels = new HashMap <> ();
+   private final Handler handler = new Handler(Looper.getMainLooper());
    private final BTGattCallback btGattCallback = new BTGattCallback();
    private final ScanCallback scanCallback = new ScanCallback();
+   private final EventScheduler eventScheduler;
+   private final ScanScheduler scanScheduler;
+   
+   private final GattTransaction.Callback transactionQueueCallback =
+      new GattTransaction.Callback()
+   {
+      @Override
+      public void onFinished(
+         GattTransaction transaction,
+         int status,
+         String error,
+         WritableMap result)
+      {
+         onTransactionFinished(transaction);
+      }
+   };
+   
+   private final GattTransaction.OperationListener transactionOperationListener =
+      new GattTransaction.OperationListener()
+   {
+      @Override
+      public void onOperationIssued(GattTransaction transaction) {
+         onOperationStarted(transaction.gatt);
+      }
+   };
+   
+   private final L2capChannel.Listener l2capChannelListener = new L2capChannel.Listener() {
+      @Override
+      public void onData(final L2capChannel channel, String data) {
+         final WritableMap params = Arguments.createMap();
+         
+         params.putInt("channelId", channel.getId());
+         params.putString("data", data);
+         
+         emit(L2CAP_DATA, params);
+         
+         final ReactApplicationContext reactContext = getReactApplicationContext();
+         
+         if (reactContext.hasActiveCatalystInstance()) {
+            reactContext.runOnJSQueueThread(new Runnable() {
+               @Override
+               public void run() {
+                  channel.acknowledge();
+               }
+            });
+         } else {
+            channel.acknowledge();
+         }
+      }
+      
+      @Override
+      public void onClosed(L2capChannel channel, String error) {
+         synchronized (l2capChannels) {
+            l2capChannels.remove(channel.getId());
+         }
+         
+         Log.d(TAG, String.format("L2CAP channel %d closed, %s", channel.getId(), error));
+         
+         final WritableMap params = Arguments.createMap();
+         
+         params.putInt("channelId", channel.getId());
+         params.putBoolean("error", error != null);
+         
+         if (error != null) {
+            params.putString("message", error);
+         }
+         
+         emit(L2CAP_CLOSED, params);
+      }
+   };
+   
+   private final ScanScheduler.Listener scanSchedulerListener = new ScanScheduler.Listener() {
+      @Override
+      public void onScanStateChanged(String state, String reason, int errorCode) {
+         final WritableMap params = Arguments.createMap();
+         
+         params.putString("state", state);
+         params.putString("reason", reason);
+         params.putInt("errorCode", errorCode);
+         
+         emit(SCAN_STATE, params);
+      }
+   };
+   
+   private final BackgroundScan.Listener backgroundScanListener = new BackgroundScan.Listener() {
+      @Override
+      public void onBackgroundScanResults(List <ScanResult> results) {
+         emit(BACKGROUND_SCAN_RESULT, wrapScanResults(results));
+      }
+   };
+   
+   private final LinkMonitor.Listener linkMonitorListener = new LinkMonitor.Listener() {
+      @Override
+      public void onLinkQualityChanged(LinkMonitor monitor, WritableMap params) {
+         emit(LINK_QUALITY, params);
+      }
+   };
    
    private boolean advertisementDataUnsigned;
+   private boolean scanRecordAsBase64;
+   private boolean columnarBatches;
+   private boolean emitScanResults = true;
+   private boolean scanStarted;
+   private int lastL2capChannelId;
    
    Module(ReactApplicationContext reactContext) {
       super(reactContext);
+      
+      eventScheduler = new EventScheduler(reactContext);
+      scanScheduler = new ScanScheduler(handler, scanCallback, scanSchedulerListener);
+      
+      connectionOwner.attach(btGattCallback);
+      
+      BackgroundScan.setListener(backgroundScanListener);
    }
    
    @Override
@@ -247,6 +489,50 @@ class Module extends ReactContextBaseJavaModule {
       return TAG;
    }
    
+   @Override
+   public void onCatalystInstanceDestroy() {
+      super.onCatalystInstanceDestroy();
+      
+      connectionOwner.detach(btGattCallback);
+      
+      BackgroundScan.removeListener(backgroundScanListener);
+      
+      synchronized (transactions) {
+         for (String address : new ArrayList <> (transactions.keySet())) {
+            failTransactions(address);
+         }
+      }
+      
+      synchronized (linkMonitors) {
+         linkMonitors.clear();
+      }
+      
+      synchronized (aggregators) {
+         aggregators.clear();
+      }
+      
+      final List <L2capChannel> channels;
+      
+      synchronized (l2capChannels) {
+         channels = new ArrayList <> (l2capChannels.values());
+      }
+      
+      for (L2capChannel channel : channels) {
+         channel.close(null);
+      }
+      
+      scanScheduler.releaseAll();
+      
+      try {
+         getAdapterEnsureEnabled().getBluetoothLeScanner().stopScan(scanCallback);
+      } catch (IllegalStateException e) {
+         Log.d(TAG, String.format("onCatalystInstanceDestroy(): %s", e.getMessage()));
+      }
+      
+      Log.d(TAG, String.format("onCatalystInstanceDestroy(), %d connections kept",
+         connectionOwner.getGatts().size()));
+   }
+   
    @Override
    public Map <String, Object> getConstants() {
       final WritableMap events = Arguments.createMap();
@@ -265,11 +551,22 @@ class Module extends ReactContextBaseJavaModule {
             CHARACTERISTIC_WRITTEN,
             CHARACTERISTIC_CHANGED,
             DESCRIPTOR_READ,
-            DESCRIPTOR_WRITTEN
+            DESCRIPTOR_WRITTEN,
+            RELIABLE_WRITE_COMPLETED,
+            WRITE_SET_COMPLETED,
+            RSSI_READ,
+            LINK_QUALITY,
+            NOTIFICATION_AGGREGATE
          }, {
             "leScanCallback",
             SCAN_FAILED,
-            SCAN_RESULT
+            SCAN_RESULT,
+            SCAN_STATE,
+            BACKGROUND_SCAN_RESULT
+         }, {
+            "l2cap",
+            L2CAP_DATA,
+            L2CAP_CLOSED
          }
       }) {
          final WritableMap map = Arguments.createMap();
@@ -287,9 +584,29 @@ class Module extends ReactContextBaseJavaModule {
       scanModes.putInt("BALANCED", ScanSettings.SCAN_MODE_BALANCED);
       scanModes.putInt("LOW_LATENCY", ScanSettings.SCAN_MODE_LOW_LATENCY);
       
+      final WritableMap connectionPriorities = Arguments.createMap();
+      
+      connectionPriorities.putInt("BALANCED", BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+      connectionPriorities.putInt("HIGH", BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+      connectionPriorities.putInt("LOW_POWER", BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER);
+      
+      final WritableMap eventSchedulingPolicies = Arguments.createMap();
+      
+      eventSchedulingPolicies.putString("DROP_OLDEST", EventScheduler.DROP_OLDEST);
+      eventSchedulingPolicies.putString("SAMPLE", EventScheduler.SAMPLE);
+      
+      final WritableMap batchFormats = Arguments.createMap();
+      
+      batchFormats.putString("ROWS", BATCH_FORMAT_ROWS);
+      batchFormats.putString("COLUMNAR", BATCH_FORMAT_COLUMNAR);
+      
       final Map <String, Object> constants = new HashMap <> ();
       constants.put("events", events);
       constants.put("scanMode", scanModes);
+      constants.put("eventSchedulingPolicy", eventSchedulingPolicies);
+      constants.put("connectionPriority", connectionPriorities);
+      constants.put("batchFormat", batchFormats);
+      constants.put("backgroundScanTask", BackgroundScan.TASK_NAME);
       
       return constants;
    }
@@ -311,9 +628,65 @@ class Module extends ReactContextBaseJavaModule {
       promise.resolve(BluetoothAdapter.getDefaultAdapter().isEnabled());
    }
    
+   @ReactMethod
+   public void setEventSchedulingOptions(ReadableMap options, Promise promise) {
+      try {
+         eventScheduler.configure(options);
+         
+         Log.d(TAG, String.format("setEventSchedulingOptions(%s)", options));
+         
+         promise.resolve(null);
+      } catch (IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void getEventStatistics(Promise promise) {
+      promise.resolve(eventScheduler.getStatistics());
+   }
+   
+   @ReactMethod
+   public void configureCache(
+      String serviceUuid,
+      String characteristicUuid,
+      ReadableMap options,
+      Promise promise)
+   {
+      try {
+         characteristicCache.configure(
+            UUID.fromString(serviceUuid).toString(),
+            UUID.fromString(characteristicUuid).toString(),
+            options == null ? 0 : Utils.safeGet(options, "ttlMillis", 0.).longValue());
+         
+         Log.d(TAG, String.format("configureCache(%s, %s, %s)",
+            serviceUuid, characteristicUuid, options));
+         
+         promise.resolve(null);
+      } catch (IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void getCacheStatistics(Promise promise) {
+      promise.resolve(characteristicCache.getStatistics());
+   }
+   
+   @ReactMethod
+   public void clearCache(Promise promise) {
+      characteristicCache.clear();
+      
+      promise.resolve(null);
+   }
+   
    @ReactMethod
    public void startScan(ReadableMap options, Promise promise) {
       try {
+         if (scanScheduler.isActive()) {
+            throw new IllegalStateException("Scanning is managed by requestScan()");
+         }
+         
          final BluetoothLeScanner scanner =
             getAdapterEnsureEnabled().getBluetoothLeScanner();
          
@@ -323,15 +696,16 @@ class Module extends ReactContextBaseJavaModule {
          final ScanSettings scanSettings = getScanSettings(Utils.
             safeGet(options, "settings", Arguments.createMap()));
          
-         advertisementDataUnsigned = Utils.safeGet(
-            options, "advertisementDataUnsigned", true);
+         setScanResultOptions(options);
          
          Log.d(TAG, String.format("startScan(%s)", options));
          
          scanner.startScan(scanFilters, scanSettings, scanCallback);
          
+         scanStarted = true;
+         
          promise.resolve(null);
-      } catch (IllegalStateException e) {
+      } catch (IllegalStateException | IllegalArgumentException e) {
          promise.reject("", e.getMessage());
       }
    }
@@ -341,6 +715,8 @@ class Module extends ReactContextBaseJavaModule {
       try {
          getAdapterEnsureEnabled().getBluetoothLeScanner().stopScan(scanCallback);
          
+         scanStarted = false;
+         
          Log.d(TAG, "stopScan()");
          
          promise.resolve(null);
@@ -349,6 +725,121 @@ class Module extends ReactContextBaseJavaModule {
       }
    }
    
+   @ReactMethod
+   public void requestScan(String clientId, ReadableMap options, Promise promise) {
+      try {
+         if (scanStarted) {
+            throw new IllegalStateException("Scan was started with startScan()");
+         }
+         
+         final ReadableMap settings = Utils.safeGet(options, "settings", Arguments.createMap());
+         
+         final ScanScheduler.Request request = new ScanScheduler.Request(
+            getScanFilters(Utils.safeGet(options, "filters", Arguments.createArray())),
+            settings.hasKey("scanMode") ? settings.getInt("scanMode") :
+               ScanSettings.SCAN_MODE_LOW_POWER,
+            settings.hasKey("reportDelay") ?
+               Long.parseLong(settings.getString("reportDelay")) : 0,
+            Utils.safeGet(options, "emitScanResults", true),
+            Utils.safeGet(options, "scanRecordAsBase64", false),
+            Utils.safeGet(options, "advertisementDataUnsigned", true),
+            isColumnarBatchFormat(options));
+         
+         scanScheduler.request(clientId, request);
+         
+         setScheduledScanResultOptions();
+         
+         Log.d(TAG, String.format("requestScan('%s', %s)", clientId, options));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException | IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void releaseScan(String clientId, Promise promise) {
+      final boolean released = scanScheduler.release(clientId);
+      
+      setScheduledScanResultOptions();
+      
+      Log.d(TAG, String.format("releaseScan('%s'), %s", clientId, released));
+      
+      promise.resolve(released);
+   }
+   
+   @ReactMethod
+   public void setScanSchedule(ReadableMap options, Promise promise) {
+      scanScheduler.configure(options);
+      
+      Log.d(TAG, String.format("setScanSchedule(%s)", options));
+      
+      promise.resolve(null);
+   }
+   
+   @ReactMethod
+   public void startBackgroundScan(ReadableMap options, Promise promise) {
+      try {
+         BackgroundScan.start(
+            getReactApplicationContext(),
+            getScanFilters(Utils.safeGet(options, "filters", Arguments.createArray())),
+            getScanSettings(Utils.safeGet(options, "settings", Arguments.createMap())),
+            Utils.safeGet(options, "criteria", Arguments.createMap()),
+            Utils.safeGetMap(options, "notification"));
+         
+         Log.d(TAG, String.format("startBackgroundScan(%s)", options));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException | IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void stopBackgroundScan(Promise promise) {
+      try {
+         BackgroundScan.stop(getReactApplicationContext());
+         
+         Log.d(TAG, "stopBackgroundScan()");
+         
+         promise.resolve(null);
+      } catch (IllegalStateException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void isBackgroundScanActive(Promise promise) {
+      promise.resolve(BackgroundScan.isActive(getReactApplicationContext()));
+   }
+   
+   @ReactMethod
+   public void queryDevices(ReadableMap query, Promise promise) {
+      try {
+         promise.resolve(deviceRegistry.query(query));
+      } catch (IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void configureDeviceRegistry(ReadableMap options, Promise promise) {
+      deviceRegistry.configure(options);
+      
+      Log.d(TAG, String.format("configureDeviceRegistry(%s)", options));
+      
+      promise.resolve(null);
+   }
+   
+   @ReactMethod
+   public void clearDevices(Promise promise) {
+      deviceRegistry.clear();
+      
+      Log.d(TAG, "clearDevices()");
+      
+      promise.resolve(null);
+   }
+   
    @ReactMethod
    public void connectGatt(String address, Boolean autoConnect, Promise promise) {
       final String addr = address.toUpperCase();
@@ -360,12 +851,8 @@ class Module extends ReactContextBaseJavaModule {
          }
          
          final BluetoothAdapter adapter = getAdapterEnsureEnabled();
-         final boolean connect = !gatts.containsKey(addr);
-         
-         if (connect) {
-            gatts.put(addr, adapter.getRemoteDevice(addr).connectGatt(
-               getReactApplicationContext(), autoConnect, btGattCallback));
-         }
+         final boolean connect = connectionOwner.connectGatt(adapter.getRemoteDevice(addr),
+            getReactApplicationContext().getApplicationContext(), autoConnect);
          
          Log.d(TAG, String.format("connectGatt('%s', %s), %s",
             addr, autoConnect, connect));
@@ -411,11 +898,11 @@ class Module extends ReactContextBaseJavaModule {
    
    @ReactMethod
    public void readCharacteristic(
-      String address,
-      String serviceUuid,
-      String characteristicUuid,
-      ReadableMap options,
-      Promise promise)
+      final String address,
+      final String serviceUuid,
+      final String characteristicUuid,
+      final ReadableMap options,
+      final Promise promise)
    {
       try {
          final BluetoothGatt gatt = getGatt(address);
@@ -423,30 +910,189 @@ class Module extends ReactContextBaseJavaModule {
          final BluetoothGattCharacteristic ch = getCharacteristic(
             gatt, serviceUuid, characteristicUuid);
          
-         if (!gatt.readCharacteristic(ch)) {
-            throw new IllegalStateException("readCharacteristic failed.");
-         }
-         
-         addRemoveReadOptions(true, options, address, serviceUuid, characteristicUuid);
-         
-         promise.resolve(null);
+         enqueueOperation(gatt, ch, true, promise, new SingleOperationTransaction.Operation() {
+            @Override
+            public boolean execute() {
+               final byte [] cachedValue = characteristicCache.get(gatt.getDevice().getAddress(), ch);
+               
+               if (cachedValue != null) {
+                  final WritableMap params = putCommonGattParams(gatt, BluetoothGatt.GATT_SUCCESS);
+                  
+                  params.putString("serviceUuid", ch.getService().getUuid().toString());
+                  params.putString("characteristicUuid", ch.getUuid().toString());
+                  params.putBoolean("cached", true);
+                  
+                  putValue(params, "value", cachedValue, options == null ? null : options.toHashMap());
+                  
+                  Log.d(TAG, String.format("readCharacteristic('%s', %s, %s): cached",
+                     address, serviceUuid, characteristicUuid));
+                  
+                  // The promise goes first: JS registers the pending read once it resolves.
+                  promise.resolve(null);
+                  
+                  emit(CHARACTERISTIC_READ, params);
+                  
+                  return false;
+               }
+               
+               if (!gatt.readCharacteristic(ch)) {
+                  throw new IllegalStateException("readCharacteristic failed.");
+               }
+               
+               addRemoveReadOptions(true, options, address, serviceUuid, characteristicUuid);
+               
+               promise.resolve(null);
+               
+               return true;
+            }
+         });
       } catch (IllegalStateException | IllegalArgumentException e) {
          promise.reject("", e.getMessage());
       }
    }
    
    @ReactMethod
-   public void writeCharacteristic(
+   public void readCharacteristics(
       String address,
-      String serviceUuid,
-      String characteristicUuid,
-      ReadableMap dataAndOptions,
-      Promise promise)
+      ReadableArray items,
+      final Promise promise)
+   {
+      try {
+         final BluetoothGatt gatt = getGatt(address);
+         final List <ReadSetTransaction.Item> readSetItems = new ArrayList <> ();
+         
+         for (int index = 0; index < items.size(); index++) {
+            final ReadableMap item = items.getMap(index);
+            
+            final BluetoothGattCharacteristic ch = getCharacteristic(gatt,
+               item.getString("serviceUuid"), item.getString("characteristicUuid"));
+            
+            final String descriptorUuid = Utils.safeGet(item, "descriptorUuid", String.class);
+            final ReadableMap options = Utils.safeGetMap(item, "options");
+            
+            readSetItems.add(new ReadSetTransaction.Item(
+               Utils.safeGet(item, "key", descriptorUuid == null ?
+                  item.getString("characteristicUuid") : descriptorUuid),
+               ch,
+               descriptorUuid == null ? null : getDescriptor(gatt, ch, descriptorUuid),
+               options == null ? null : options.toHashMap()));
+         }
+         
+         if (readSetItems.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+               "readCharacteristics() for '%s' requires at least one item", address));
+         }
+         
+         enqueueTransaction(new ReadSetTransaction(gatt, readSetItems, characteristicCache,
+            new GattTransaction.Callback()
+         {
+            @Override
+            public void onFinished(
+               GattTransaction transaction,
+               int status,
+               String error,
+               WritableMap result)
+            {
+               if (error == null) {
+                  promise.resolve(result);
+               } else {
+                  promise.reject("", error);
+               }
+            }
+         }));
+         
+         Log.d(TAG, String.format("readCharacteristics('%s', %d)",
+            address, readSetItems.size()));
+      } catch (IllegalStateException | IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void writeCharacteristic(
+      String address,
+      String serviceUuid,
+      String characteristicUuid,
+      ReadableMap dataAndOptions,
+      Promise promise)
    {
       write(address, serviceUuid, characteristicUuid,
          null, dataAndOptions, promise);
    }
    
+   @ReactMethod
+   public void broadcastWriteCharacteristic(
+      ReadableArray addresses,
+      String serviceUuid,
+      String characteristicUuid,
+      ReadableMap dataAndOptions,
+      final Promise promise)
+   {
+      final byte [] value;
+      
+      try {
+         if (dataAndOptions == null || !dataAndOptions.hasKey("value")) {
+            throw new IllegalArgumentException(
+               "broadcastWriteCharacteristic() requires a value");
+         }
+         
+         value = Utils.createByteArray(dataAndOptions, "value");
+      } catch (IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+         
+         return;
+      }
+      
+      final WritableMap results = Arguments.createMap();
+      final Map <BluetoothGatt, BluetoothGattCharacteristic> targets = new LinkedHashMap <> ();
+      
+      for (int index = 0; index < addresses.size(); index++) {
+         final String address = addresses.getString(index);
+         
+         try {
+            final BluetoothGatt gatt = getGatt(address);
+            
+            targets.put(gatt, getCharacteristic(gatt, serviceUuid, characteristicUuid));
+         } catch (IllegalStateException | IllegalArgumentException e) {
+            results.putMap(address.toUpperCase(), createBroadcastResult(
+               BluetoothGatt.GATT_FAILURE, e.getMessage()));
+         }
+      }
+      
+      Log.d(TAG, String.format("broadcastWriteCharacteristic(%d, %s, %s, %s), %d",
+         addresses.size(), serviceUuid, characteristicUuid,
+            Arrays.toString(value), targets.size()));
+      
+      if (targets.isEmpty()) {
+         promise.resolve(results);
+      } else {
+         final GattTransaction.Callback callback = new GattTransaction.Callback() {
+            private int pending = targets.size();
+            
+            @Override
+            public synchronized void onFinished(
+               GattTransaction transaction,
+               int status,
+               String error,
+               WritableMap result)
+            {
+               results.putMap(transaction.getAddress(), createBroadcastResult(status, error));
+               
+               if (--pending == 0) {
+                  promise.resolve(results);
+               }
+            }
+         };
+         
+         for (Map.Entry <BluetoothGatt, BluetoothGattCharacteristic> target : targets.entrySet()) {
+            enqueueTransaction(new WriteSetTransaction(target.getKey(),
+               Arrays.asList(new WriteSetTransaction.Entry(target.getValue(), value)),
+               false,
+               callback));
+         }
+      }
+   }
+   
    @ReactMethod
    public void setCharacteristicNotification(
       String address,
@@ -472,6 +1118,9 @@ class Module extends ReactContextBaseJavaModule {
          
          addRemoveReadOptions(enable, options, address, serviceUuid, characteristicUuid);
          
+         connectionOwner.setNotification(gatt.getDevice().getAddress(),
+            serviceUuid, characteristicUuid, enable);
+         
          Log.d(TAG, String.format("setCharacteristicNotification%s", logString));
          
          promise.resolve(null);
@@ -480,6 +1129,16 @@ class Module extends ReactContextBaseJavaModule {
       }
    }
    
+   @ReactMethod
+   public void subscribe(String address, ReadableArray items, Promise promise) {
+      setSubscriptions(address, items, true, promise);
+   }
+   
+   @ReactMethod
+   public void unsubscribe(String address, ReadableArray items, Promise promise) {
+      setSubscriptions(address, items, false, promise);
+   }
+   
    @ReactMethod
    public void writeDescriptor(
       String address,
@@ -493,6 +1152,486 @@ class Module extends ReactContextBaseJavaModule {
          descriptorUuid, dataAndOptions, promise);
    }
    
+   @ReactMethod
+   public void beginReliableWrite(String address, Promise promise) {
+      try {
+         if (!getGatt(address).beginReliableWrite()) {
+            throw new IllegalStateException(String.format(
+               "BluetoothGatt.beginReliableWrite() failed for '%s'", address));
+         }
+         
+         Log.d(TAG, String.format("beginReliableWrite('%s')", address));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void executeReliableWrite(String address, Promise promise) {
+      try {
+         if (!getGatt(address).executeReliableWrite()) {
+            throw new IllegalStateException(String.format(
+               "BluetoothGatt.executeReliableWrite() failed for '%s'", address));
+         }
+         
+         Log.d(TAG, String.format("executeReliableWrite('%s')", address));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void abortReliableWrite(String address, Promise promise) {
+      try {
+         getGatt(address).abortReliableWrite();
+         
+         Log.d(TAG, String.format("abortReliableWrite('%s')", address));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void writeSet(
+      String address,
+      ReadableArray entries,
+      ReadableMap options,
+      Promise promise)
+   {
+      try {
+         final BluetoothGatt gatt = getGatt(address);
+         final List <WriteSetTransaction.Entry> writeSetEntries = new ArrayList <> ();
+         
+         for (int index = 0; index < entries.size(); index++) {
+            final ReadableMap entry = entries.getMap(index);
+            
+            writeSetEntries.add(new WriteSetTransaction.Entry(
+               getCharacteristic(gatt,
+                  entry.getString("serviceUuid"),
+                  entry.getString("characteristicUuid")),
+               Utils.createByteArray(entry, "value")));
+         }
+         
+         if (writeSetEntries.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+               "writeSet() for '%s' requires at least one entry", address));
+         }
+         
+         final boolean reliable = options == null ||
+            Utils.safeGet(options, "reliable", true);
+         
+         enqueueTransaction(new WriteSetTransaction(gatt, writeSetEntries,
+            reliable, createEmittingCallback(WRITE_SET_COMPLETED, options)));
+         
+         Log.d(TAG, String.format("writeSet('%s', %d, %s)",
+            address, writeSetEntries.size(), reliable));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException | IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void runScript(
+      String address,
+      ReadableArray script,
+      ReadableMap options,
+      final Promise promise)
+   {
+      try {
+         final BluetoothGatt gatt = getGatt(address);
+         final long timeoutMillis = Utils.safeGet(options, "timeoutMillis", 5000.).longValue();
+         final Map <String, Integer> labels = new HashMap <> ();
+         
+         for (int index = 0; index < script.size(); index++) {
+            final String label = Utils.safeGet(script.getMap(index), "label", String.class);
+            
+            if (label != null && labels.put(label, index) != null) {
+               throw new IllegalArgumentException(String.format(
+                  "Duplicate script label '%s'", label));
+            }
+         }
+         
+         if (!labels.containsKey(ScriptTransaction.LABEL_END)) {
+            labels.put(ScriptTransaction.LABEL_END, script.size());
+         }
+         
+         final List <ScriptTransaction.Step> steps = new ArrayList <> ();
+         
+         for (int index = 0; index < script.size(); index++) {
+            final ReadableMap step = script.getMap(index);
+            final String op = step.getString("op");
+            final int next = getScriptTarget(labels, step, index + 1);
+            final List <ScriptTransaction.Branch> branches = new ArrayList <> ();
+            
+            if (op.equals(ScriptTransaction.OP_READ)
+               || op.equals(ScriptTransaction.OP_WAIT_NOTIFICATION))
+            {
+               final ReadableArray alternatives = Utils.safeGetArray(step, "branches");
+               
+               for (int alternative = 0; alternatives != null
+                  && alternative < alternatives.size(); alternative++)
+               {
+                  final ReadableMap branch = alternatives.getMap(alternative);
+                  
+                  branches.add(new ScriptTransaction.Branch(
+                     getScriptPattern(Utils.safeGetArray(branch, "match")),
+                     Utils.safeGet(branch, "prefix", false),
+                     getScriptTarget(labels, branch, next)));
+               }
+               
+               if (alternatives == null) {
+                  branches.add(new ScriptTransaction.Branch(
+                     getScriptPattern(Utils.safeGetArray(step, "match")),
+                     Utils.safeGet(step, "prefix", false),
+                     next));
+               }
+            } else if (op.equals(ScriptTransaction.OP_WRITE)) {
+               branches.add(new ScriptTransaction.Branch(null, false, next));
+            } else {
+               throw new IllegalArgumentException(String.format(
+                  "Unknown op '%s' at step %d of the script", op, index));
+            }
+            
+            steps.add(new ScriptTransaction.Step(
+               op,
+               getCharacteristic(gatt,
+                  step.getString("serviceUuid"),
+                  step.getString("characteristicUuid")),
+               op.equals(ScriptTransaction.OP_WRITE) ?
+                  getScriptTemplate(step.getArray("value")) : null,
+               Utils. <Boolean> safeGet(step, "withResponse", Boolean.class),
+               Utils. <String> safeGet(step, "capture", String.class),
+               branches,
+               Utils.safeGet(step, "timeoutMillis", (double)timeoutMillis).longValue()));
+         }
+         
+         if (steps.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+               "runScript() for '%s' requires at least one step", address));
+         }
+         
+         final Map <String, byte []> variables = new HashMap <> ();
+         final ReadableMap variableMap = Utils.safeGetMap(options, "variables");
+         
+         if (variableMap != null) {
+            for (String name : variableMap.toHashMap().keySet()) {
+               variables.put(name, Utils.createByteArray(variableMap, name));
+            }
+         }
+         
+         enqueueTransaction(new ScriptTransaction(
+            gatt,
+            steps,
+            variables,
+            options.toHashMap(),
+            Utils.safeGet(options, "maxSteps", 256),
+            handler,
+            new GattTransaction.Callback()
+         {
+            @Override
+            public void onFinished(
+               GattTransaction transaction,
+               int status,
+               String error,
+               WritableMap result)
+            {
+               if (error == null) {
+                  promise.resolve(result);
+               } else {
+                  promise.reject("", error);
+               }
+            }
+         }));
+         
+         Log.d(TAG, String.format("runScript('%s', %d)", address, steps.size()));
+      } catch (IllegalStateException | IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void readRemoteRssi(String address, Promise promise) {
+      try {
+         if (!getGatt(address).readRemoteRssi()) {
+            throw new IllegalStateException(String.format(
+               "BluetoothGatt.readRemoteRssi() failed for '%s'", address));
+         }
+         
+         Log.d(TAG, String.format("readRemoteRssi('%s')", address));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void requestConnectionPriority(String address, int priority, Promise promise) {
+      try {
+         if (!getGatt(address).requestConnectionPriority(priority)) {
+            throw new IllegalStateException(String.format(
+               "BluetoothGatt.requestConnectionPriority(%d) failed for '%s'",
+                  priority, address));
+         }
+         
+         Log.d(TAG, String.format("requestConnectionPriority('%s', %d)", address, priority));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void startLinkMonitor(String address, ReadableMap options, Promise promise) {
+      try {
+         final BluetoothGatt gatt = getGatt(address);
+         
+         final LinkMonitor monitor = new LinkMonitor(gatt.getDevice().getAddress(),
+            options, linkMonitorListener);
+         
+         monitor.setPaused(connectionOwner.getConnectionState(monitor.getAddress())
+            != BluetoothProfile.STATE_CONNECTED);
+         
+         synchronized (linkMonitors) {
+            linkMonitors.put(monitor.getAddress(), monitor);
+         }
+         
+         handler.post(new Runnable() {
+            @Override
+            public void run() {
+               if (getLinkMonitor(monitor.getAddress()) == monitor) {
+                  if (monitor.beginRssiRead()) {
+                     enqueueTransaction(new RssiTransaction(gatt, new GattTransaction.Callback() {
+                        @Override
+                        public void onFinished(
+                           GattTransaction transaction,
+                           int status,
+                           String error,
+                           WritableMap result)
+                        {
+                           if (error == null) {
+                              monitor.onRssi(status, result.getInt("rssi"));
+                           } else {
+                              monitor.onRssi(BluetoothGatt.GATT_FAILURE, 0);
+                           }
+                        }
+                     }), Math.max(RSSI_TIMEOUT_MILLIS, monitor.getIntervalMillis()));
+                  }
+                  
+                  handler.postDelayed(this, monitor.getIntervalMillis());
+               }
+            }
+         });
+         
+         Log.d(TAG, String.format("startLinkMonitor('%s', %s)", address, options));
+         
+         promise.resolve(monitor.getState());
+      } catch (IllegalStateException | IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void stopLinkMonitor(String address, Promise promise) {
+      final LinkMonitor monitor;
+      
+      synchronized (linkMonitors) {
+         monitor = linkMonitors.remove(address.toUpperCase());
+      }
+      
+      Log.d(TAG, String.format("stopLinkMonitor('%s'), %s", address, monitor != null));
+      
+      promise.resolve(monitor == null ? null : monitor.getState());
+   }
+   
+   @ReactMethod
+   public void startAggregation(
+      String address,
+      final String serviceUuid,
+      final String characteristicUuid,
+      ReadableMap options,
+      Promise promise)
+   {
+      try {
+         final BluetoothGatt gatt = getGatt(address);
+         
+         getCharacteristic(gatt, serviceUuid, characteristicUuid);
+         
+         final NotificationAggregator aggregator = new NotificationAggregator(
+            getReadOptionsKey(gatt.getDevice().getAddress(), serviceUuid, characteristicUuid),
+            options);
+         
+         synchronized (aggregators) {
+            aggregators.put(aggregator.getKey(), aggregator);
+         }
+         
+         handler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+               final boolean active;
+               
+               synchronized (aggregators) {
+                  active = aggregators.get(aggregator.getKey()) == aggregator;
+               }
+               
+               if (active) {
+                  emitAggregate(gatt, serviceUuid, characteristicUuid, aggregator.flush());
+                  
+                  handler.postDelayed(this, aggregator.getWindowMillis());
+               }
+            }
+         }, aggregator.getWindowMillis());
+         
+         Log.d(TAG, String.format("startAggregation('%s', %s, %s, %s)",
+            address, serviceUuid, characteristicUuid, options));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException | IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void stopAggregation(
+      String address,
+      String serviceUuid,
+      String characteristicUuid,
+      Promise promise)
+   {
+      final NotificationAggregator aggregator;
+      
+      synchronized (aggregators) {
+         aggregator = aggregators.remove(getReadOptionsKey(
+            address.toUpperCase(), serviceUuid, characteristicUuid));
+      }
+      
+      Log.d(TAG, String.format("stopAggregation('%s', %s, %s), %s",
+         address, serviceUuid, characteristicUuid, aggregator != null));
+      
+      final WritableMap params = aggregator == null ? null : aggregator.flush();
+      
+      promise.resolve(params);
+   }
+   
+   @ReactMethod
+   public void openL2capChannel(
+      String address,
+      final int psm,
+      ReadableMap options,
+      final Promise promise)
+   {
+      final String addr = address.toUpperCase();
+      
+      try {
+         if (Build.VERSION.SDK_INT < L2capChannel.MIN_SDK_VERSION) {
+            throw new IllegalStateException(String.format(
+               "L2CAP channels require API level %d", L2capChannel.MIN_SDK_VERSION));
+         }
+         
+         if (!BluetoothAdapter.checkBluetoothAddress(addr)) {
+            throw new IllegalArgumentException(String.
+               format("Invalid device id: '%s'", addr));
+         }
+         
+         final BluetoothDevice device = getAdapterEnsureEnabled().getRemoteDevice(addr);
+         final boolean secure = Utils.safeGet(options, "secure", false);
+         final int readBufferSize = Utils.safeGet(options, "readBufferSize", 0);
+         final int highWaterMark = Utils.safeGet(options, "highWaterMark", 65536);
+         final int lowWaterMark = Utils.safeGet(options, "lowWaterMark", 16384);
+         final int maxPendingChunks = Utils.safeGet(options, "maxPendingChunks", 8);
+         
+         final int channelId;
+         
+         synchronized (l2capChannels) {
+            channelId = ++lastL2capChannelId;
+         }
+         
+         new Thread(new Runnable() {
+            @Override
+            public void run() {
+               BluetoothSocket socket = null;
+               
+               try {
+                  socket = L2capChannel.createSocket(device, psm, secure);
+                  
+                  socket.connect();
+                  
+                  final L2capChannel channel = new L2capChannel(
+                     channelId,
+                     socket,
+                     readBufferSize,
+                     highWaterMark,
+                     lowWaterMark,
+                     maxPendingChunks,
+                     l2capChannelListener);
+                  
+                  synchronized (l2capChannels) {
+                     l2capChannels.put(channelId, channel);
+                  }
+                  
+                  channel.start();
+                  
+                  Log.d(TAG, String.format("openL2capChannel('%s', %d, %s), %d",
+                     addr, psm, secure, channelId));
+                  
+                  final WritableMap result = Arguments.createMap();
+                  
+                  result.putInt("channelId", channelId);
+                  result.putInt("maxTransmitPacketSize", socket.getMaxTransmitPacketSize());
+                  result.putInt("maxReceivePacketSize", socket.getMaxReceivePacketSize());
+                  
+                  promise.resolve(result);
+               } catch (IOException | IllegalStateException e) {
+                  if (socket != null) {
+                     try {
+                        socket.close();
+                     } catch (IOException ce) {
+                        Log.w(TAG, "BluetoothSocket.close() failed", ce);
+                     }
+                  }
+                  
+                  promise.reject("", String.format(
+                     "Opening L2CAP channel with '%s' (psm %d) failed: %s",
+                        addr, psm, e.getMessage()));
+               }
+            }
+         }, String.format("L2capChannel-%d-connect", channelId)).start();
+      } catch (IllegalArgumentException | IllegalStateException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void writeL2capChannel(int channelId, String data, Promise promise) {
+      try {
+         getL2capChannel(channelId).write(Base64.decode(data, Base64.DEFAULT), promise);
+      } catch (IllegalArgumentException | IllegalStateException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
+   @ReactMethod
+   public void closeL2capChannel(int channelId, Promise promise) {
+      try {
+         getL2capChannel(channelId).close(null);
+         
+         Log.d(TAG, String.format("closeL2capChannel(%d)", channelId));
+         
+         promise.resolve(null);
+      } catch (IllegalStateException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
    @ReactMethod
    public void disconnect(String address, Promise promise) {
       try {
@@ -511,13 +1650,25 @@ class Module extends ReactContextBaseJavaModule {
       try {
          final BluetoothGatt gatt = getGatt(address);
          
-         if (gatts.remove(gatt.getDevice().getAddress()) == null) {
+         if (connectionOwner.removeGatt(gatt.getDevice().getAddress()) == null) {
             throw new IllegalStateException(String.format(
-               "gatts.remove('%s') == null", gatt.getDevice().getAddress()));
+               "removeGatt('%s') == null", gatt.getDevice().getAddress()));
          }
          
          gatt.close();
          
+         connectionOwner.remove(gatt.getDevice().getAddress());
+         
+         failTransactions(gatt.getDevice().getAddress());
+         
+         synchronized (linkMonitors) {
+            linkMonitors.remove(gatt.getDevice().getAddress());
+         }
+         
+         removeAggregators(gatt.getDevice().getAddress());
+         
+         characteristicCache.invalidate(gatt.getDevice().getAddress());
+         
          Log.d(TAG, String.format("closeGatt('%s')", address));
          
          promise.resolve(null);
@@ -526,9 +1677,82 @@ class Module extends ReactContextBaseJavaModule {
       }
    }
    
+   @ReactMethod
+   public void restoreConnections(Promise promise) {
+      final WritableArray connections = Arguments.createArray();
+      final List <BluetoothGatt> restored = connectionOwner.getGatts();
+      
+      for (BluetoothGatt gatt : restored) {
+         connections.pushMap(createRestoredConnection(gatt));
+         
+         if (connectionOwner.getConnectionState(gatt.getDevice().getAddress())
+            == BluetoothProfile.STATE_CONNECTED)
+         {
+            emit(CONNECTED, createRestoredConnection(gatt));
+         }
+      }
+      
+      Log.d(TAG, String.format("restoreConnections(), %d", restored.size()));
+      
+      promise.resolve(connections);
+   }
+   
+   @ReactMethod
+   public void startForegroundService(ReadableMap options, Promise promise) {
+      final Context context = getReactApplicationContext().getApplicationContext();
+      final Intent intent = new Intent(context, ConnectionService.class);
+      
+      intent.putExtra(ConnectionService.EXTRA_TITLE, Utils. <String> safeGet(options, "title", String.class));
+      intent.putExtra(ConnectionService.EXTRA_TEXT, Utils. <String> safeGet(options, "text", String.class));
+      
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+         context.startForegroundService(intent);
+      } else {
+         context.startService(intent);
+      }
+      
+      Log.d(TAG, String.format("startForegroundService(%s)", options));
+      
+      promise.resolve(null);
+   }
+   
+   @ReactMethod
+   public void stopForegroundService(Promise promise) {
+      final Context context = getReactApplicationContext().getApplicationContext();
+      
+      promise.resolve(context.stopService(new Intent(context, ConnectionService.class)));
+      
+      Log.d(TAG, "stopForegroundService()");
+   }
+   
+   private WritableMap createRestoredConnection(BluetoothGatt gatt) {
+      final String address = gatt.getDevice().getAddress();
+      final WritableMap connection = putCommonGattParams(gatt, BluetoothGatt.GATT_SUCCESS);
+      final WritableMap notifications = Arguments.createMap();
+      
+      for (Map.Entry <String, Set <String>> service :
+         connectionOwner.getNotifications(address).entrySet())
+      {
+         final WritableArray characteristics = Arguments.createArray();
+         
+         for (String characteristicUuid : service.getValue()) {
+            characteristics.pushString(characteristicUuid);
+         }
+         
+         notifications.putArray(service.getKey(), characteristics);
+      }
+      
+      connection.putInt("state", connectionOwner.getConnectionState(address));
+      connection.putBoolean("servicesDiscovered", !gatt.getServices().isEmpty());
+      connection.putBoolean("restored", true);
+      connection.putMap("notifications", notifications);
+      
+      return connection;
+   }
+   
    private BluetoothGatt getGatt(String address) {
       final String addr = address.toUpperCase();
-      final BluetoothGatt gatt = gatts.get(addr);
+      final BluetoothGatt gatt = connectionOwner.getGatt(addr);
       
       if (gatt == null) {
          throw new IllegalStateException(String.format(
@@ -538,6 +1762,21 @@ class Module extends ReactContextBaseJavaModule {
       return gatt;
    }
    
+   private L2capChannel getL2capChannel(int channelId) {
+      final L2capChannel channel;
+      
+      synchronized (l2capChannels) {
+         channel = l2capChannels.get(channelId);
+      }
+      
+      if (channel == null) {
+         throw new IllegalStateException(String.format(
+            "L2CAP channel %d isn't open", channelId));
+      }
+      
+      return channel;
+   }
+   
    private WritableMap putCommonGattParams(BluetoothGatt gatt, int status) {
       final WritableMap params = Arguments.createMap();
       
@@ -597,8 +1836,13 @@ class Module extends ReactContextBaseJavaModule {
          final WritableMap scanRecord = Arguments.createMap();
          final ScanRecord scRecord = scanResult.getScanRecord();
          
-         scanRecord.putArray("bytes", Utils.writableArrayFrom(
-            scRecord.getBytes(), !advertisementDataUnsigned));
+         if (scanRecordAsBase64) {
+            scanRecord.putString("base64", Base64.encodeToString(
+               scRecord.getBytes(), Base64.NO_WRAP));
+         } else {
+            scanRecord.putArray("bytes", Utils.writableArrayFrom(
+               scRecord.getBytes(), !advertisementDataUnsigned));
+         }
          
          scanRecord.putString("name", scRecord.getDeviceName());
          
@@ -619,12 +1863,99 @@ class Module extends ReactContextBaseJavaModule {
       return params;
    }
    
+   private WritableMap wrapScanResultsColumnar(List <ScanResult> scanResults) {
+      final WritableArray ids = Arguments.createArray();
+      final WritableArray rssis = Arguments.createArray();
+      final WritableArray timestamps = Arguments.createArray();
+      final WritableArray names = Arguments.createArray();
+      final WritableArray nameIndexes = Arguments.createArray();
+      final WritableArray scanRecordOffsets = Arguments.createArray();
+      
+      final Map <String, Integer> nameTable = new HashMap <> ();
+      final ByteArrayOutputStream scanRecords = new ByteArrayOutputStream();
+      
+      scanRecordOffsets.pushInt(0);
+      
+      for (ScanResult scanResult : scanResults) {
+         final BluetoothDevice btDevice = scanResult.getDevice();
+         final ScanRecord scRecord = scanResult.getScanRecord();
+         
+         ids.pushString(btDevice.getAddress());
+         rssis.pushInt(scanResult.getRssi());
+         timestamps.pushDouble(scanResult.getTimestampNanos() / 1000000.);
+         
+         String name = btDevice.getName();
+         
+         if (name == null && scRecord != null) {
+            name = scRecord.getDeviceName();
+         }
+         
+         if (name == null) {
+            nameIndexes.pushInt(-1);
+         } else {
+            Integer nameIndex = nameTable.get(name);
+            
+            if (nameIndex == null) {
+               nameIndex = nameTable.size();
+               nameTable.put(name, nameIndex);
+               names.pushString(name);
+            }
+            
+            nameIndexes.pushInt(nameIndex);
+         }
+         
+         if (scRecord != null) {
+            final byte [] bytes = scRecord.getBytes();
+            
+            scanRecords.write(bytes, 0, bytes.length);
+         }
+         
+         scanRecordOffsets.pushInt(scanRecords.size());
+      }
+      
+      final WritableMap params = Arguments.createMap();
+      
+      params.putString("format", BATCH_FORMAT_COLUMNAR);
+      params.putInt("count", scanResults.size());
+      params.putArray("ids", ids);
+      params.putArray("rssis", rssis);
+      params.putArray("timestamps", timestamps);
+      params.putArray("names", names);
+      params.putArray("nameIndexes", nameIndexes);
+      params.putString("scanRecords", Base64.encodeToString(
+         scanRecords.toByteArray(), Base64.NO_WRAP));
+      params.putArray("scanRecordOffsets", scanRecordOffsets);
+      
+      return params;
+   }
+   
    private void emit(String eventName, WritableMap params) {
       params.putString("eventName", eventName);
       
-      getReactApplicationContext()
-         .getJSModule(RCTNativeAppEventEmitter.class)
-         .emit(eventName, params);
+      eventScheduler.emit(getEventPriority(eventName), eventName, params);
+   }
+   
+   private int getEventPriority(String eventName) {
+      switch (eventName) {
+         case CONNECTED:
+         case CONNECTING:
+         case DISCONNECTED:
+         case DISCONNECTING:
+         case SCAN_FAILED:
+         case SCAN_STATE:
+            return EventScheduler.PRIORITY_STATE;
+         
+         case CHARACTERISTIC_CHANGED:
+         case NOTIFICATION_AGGREGATE:
+            return EventScheduler.PRIORITY_NOTIFICATION;
+         
+         case SCAN_RESULT:
+         case BACKGROUND_SCAN_RESULT:
+            return EventScheduler.PRIORITY_SCAN;
+         
+         default:
+            return EventScheduler.PRIORITY_GATT;
+      }
    }
    
    private BluetoothGattCharacteristic getCharacteristic(
@@ -677,13 +2008,89 @@ class Module extends ReactContextBaseJavaModule {
       return descr;
    }
    
+   private void setSubscriptions(
+      final String address,
+      ReadableArray items,
+      final boolean enable,
+      final Promise promise)
+   {
+      try {
+         final BluetoothGatt gatt = getGatt(address);
+         final List <SubscribeTransaction.Item> subscribeItems = new ArrayList <> ();
+         
+         for (int index = 0; index < items.size(); index++) {
+            final ReadableMap item = items.getMap(index);
+            final String serviceUuid = item.getString("serviceUuid");
+            final String characteristicUuid = item.getString("characteristicUuid");
+            
+            final BluetoothGattCharacteristic ch = getCharacteristic(
+               gatt, serviceUuid, characteristicUuid);
+            
+            final BluetoothGattDescriptor cccd = ch.getDescriptor(SubscribeTransaction.CCCD_UUID);
+            
+            if (cccd == null) {
+               throw new IllegalArgumentException(String.format(
+                  "Characteristic '%s' of service '%s' of '%s' has no CCCD",
+                     characteristicUuid, serviceUuid, address));
+            }
+            
+            subscribeItems.add(new SubscribeTransaction.Item(
+               serviceUuid,
+               characteristicUuid,
+               cccd,
+               SubscribeTransaction.getCccdValue(ch, enable,
+                  Utils. <String> safeGet(item, "mode", String.class)),
+               Utils.safeGetMap(item, "options")));
+         }
+         
+         if (subscribeItems.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+               "%s() for '%s' requires at least one item",
+                  enable ? "subscribe" : "unsubscribe", address));
+         }
+         
+         enqueueTransaction(new SubscribeTransaction(gatt, subscribeItems,
+            new GattTransaction.Callback()
+         {
+            @Override
+            public void onFinished(
+               GattTransaction transaction,
+               int status,
+               String error,
+               WritableMap result)
+            {
+               for (SubscribeTransaction.Item item :
+                  ((SubscribeTransaction)transaction).getCompletedItems())
+               {
+                  addRemoveReadOptions(enable, item.options,
+                     address, item.serviceUuid, item.characteristicUuid);
+                  
+                  connectionOwner.setNotification(transaction.getAddress(),
+                     item.serviceUuid, item.characteristicUuid, enable);
+               }
+               
+               if (error != null) {
+                  result.putString("error", error);
+               }
+               
+               promise.resolve(result);
+            }
+         }));
+         
+         Log.d(TAG, String.format("%s('%s', %d)", enable ? "subscribe" : "unsubscribe",
+            address, subscribeItems.size()));
+      } catch (IllegalStateException | IllegalArgumentException e) {
+         promise.reject("", e.getMessage());
+      }
+   }
+   
    private void write(
       String address,
       String serviceUuid,
       String characteristicUuid,
       String descriptorUuid,
       ReadableMap dataAndOptions,
-      Promise promise)
+      final Promise promise)
    {
       try {
          final BluetoothGatt gatt = getGatt(address);
@@ -694,8 +2101,7 @@ class Module extends ReactContextBaseJavaModule {
          final BluetoothGattDescriptor descr = descriptorUuid ==
             null ? null : getDescriptor(gatt, ch, descriptorUuid);
          
-         final byte [] value = Utils.createByteArray(
-            dataAndOptions.getArray("value"));
+         final byte [] value = Utils.createByteArray(dataAndOptions, "value");
          
          final StringBuilder sb = new StringBuilder("(")
             .append(address)
@@ -715,12 +2121,21 @@ class Module extends ReactContextBaseJavaModule {
             .append(Arrays.toString(value))
             .append(')');
          
-         (descr == null ? writeCharacteristicData : writeDescriptorData).
-            write(descr == null ? ch : descr, value, gatt, sb);
-         
-         Log.d(TAG, sb.toString());
-         
-         promise.resolve(null);
+         enqueueOperation(gatt, descr == null ? ch : descr, false, promise,
+            new SingleOperationTransaction.Operation()
+         {
+            @Override
+            public boolean execute() {
+               (descr == null ? writeCharacteristicData : writeDescriptorData).
+                  write(descr == null ? ch : descr, value, gatt, sb);
+               
+               Log.d(TAG, sb.toString());
+               
+               promise.resolve(null);
+               
+               return true;
+            }
+         });
       } catch (IllegalStateException | IllegalArgumentException e) {
          promise.reject("", e.getMessage());
       }
@@ -783,18 +2198,12 @@ class Module extends ReactContextBaseJavaModule {
       if (changed || read) {
          final String readOptionsKey = getReadOptionsKey(address, serviceUuid, characteristicUuid, descriptorUuid);
          
-         final Map <String, Object> options = readOptions.get(readOptionsKey);
+         final Map <String, Object> options = connectionOwner.getReadOptions(readOptionsKey);
          
-         if (options != null && (Boolean)options.get("asString")) {
-            final Integer offset = (Integer)options.get("offset");
-            
-            params.putString("value", ch.getStringValue(offset == null ? 0 : offset));
-         } else {
-            params.putArray("value", Utils.writableArrayFrom(isCh ? ch.getValue() : descr.getValue(), options == null || !options.containsKey("valueUnsigned") ? true : !(Boolean)options.get("valueUnsigned")));
-         }
+         putValue(params, "value", isCh ? ch.getValue() : descr.getValue(), options);
          
          if (!changed && read) {
-            readOptions.remove(readOptionsKey);
+            connectionOwner.removeReadOptions(readOptionsKey);
          }
       }
       
@@ -803,6 +2212,298 @@ class Module extends ReactContextBaseJavaModule {
             params);
    }
    
+   private void enqueueOperation(
+      final BluetoothGatt gatt,
+      final Object target,
+      final boolean read,
+      final Promise promise,
+      SingleOperationTransaction.Operation operation)
+   {
+      enqueueTransaction(new SingleOperationTransaction(gatt, target, read, operation,
+         new GattTransaction.Callback()
+      {
+         @Override
+         public void onFinished(
+            GattTransaction transaction,
+            int status,
+            String error,
+            WritableMap result)
+         {
+            if (((SingleOperationTransaction)transaction).isIssued()) {
+               onReadWrittenChanged(gatt, target, read,
+                  error == null ? status : BluetoothGatt.GATT_FAILURE);
+            } else if (error != null) {
+               promise.reject("", error);
+            }
+         }
+      }));
+   }
+   
+   private void enqueueTransaction(GattTransaction transaction) {
+      enqueueTransaction(transaction, TRANSACTION_TIMEOUT_MILLIS);
+   }
+   
+   private void enqueueTransaction(GattTransaction transaction, long timeoutMillis) {
+      final boolean start;
+      
+      transaction.setQueueCallback(transactionQueueCallback);
+      transaction.setOperationListener(transactionOperationListener);
+      transaction.setWatchdog(handler, timeoutMillis);
+      
+      synchronized (transactions) {
+         ArrayDeque <GattTransaction> queue = transactions.get(transaction.getAddress());
+         
+         if (queue == null) {
+            queue = new ArrayDeque <> ();
+            transactions.put(transaction.getAddress(), queue);
+         }
+         
+         queue.add(transaction);
+         start = queue.size() == 1;
+      }
+      
+      if (start) {
+         startTransaction(transaction);
+      }
+   }
+   
+   private void startTransaction(GattTransaction transaction) {
+      try {
+         transaction.armWatchdog();
+         transaction.start();
+      } catch (IllegalStateException | IllegalArgumentException e) {
+         transaction.fail(BluetoothGatt.GATT_FAILURE, e.getMessage());
+      }
+   }
+   
+   private void onTransactionFinished(GattTransaction transaction) {
+      GattTransaction next = null;
+      
+      synchronized (transactions) {
+         final ArrayDeque <GattTransaction> queue = transactions.get(transaction.getAddress());
+         
+         if (queue != null) {
+            final boolean active = queue.peek() == transaction;
+            
+            queue.remove(transaction);
+            
+            if (queue.isEmpty()) {
+               transactions.remove(transaction.getAddress());
+            } else if (active) {
+               next = queue.peek();
+            }
+         }
+      }
+      
+      if (next != null) {
+         startTransaction(next);
+      }
+   }
+   
+   private GattTransaction getActiveTransaction(BluetoothGatt gatt) {
+      synchronized (transactions) {
+         final ArrayDeque <GattTransaction> queue = transactions.get(gatt.getDevice().getAddress());
+         
+         return queue == null ? null : queue.peek();
+      }
+   }
+   
+   private void failTransactions(String address) {
+      final ArrayDeque <GattTransaction> queue;
+      
+      synchronized (transactions) {
+         queue = transactions.remove(address);
+      }
+      
+      if (queue != null) {
+         for (GattTransaction transaction : queue) {
+            transaction.fail(BluetoothGatt.GATT_FAILURE, String.format(
+               "Connection with '%s' was lost", address));
+         }
+      }
+   }
+   
+   private boolean aggregate(BluetoothGatt gatt, BluetoothGattCharacteristic ch) {
+      final NotificationAggregator aggregator;
+      
+      synchronized (aggregators) {
+         aggregator = aggregators.isEmpty() ? null : aggregators.get(getReadOptionsKey(
+            gatt.getDevice().getAddress(),
+            ch.getService().getUuid().toString(),
+            ch.getUuid().toString()));
+      }
+      
+      if (aggregator != null) {
+         aggregator.add(ch.getValue());
+      }
+      
+      return aggregator != null;
+   }
+   
+   private void emitAggregate(
+      BluetoothGatt gatt,
+      String serviceUuid,
+      String characteristicUuid,
+      WritableMap params)
+   {
+      if (params != null) {
+         params.putString("id", gatt.getDevice().getAddress());
+         params.putString("serviceUuid", serviceUuid);
+         params.putString("characteristicUuid", characteristicUuid);
+         
+         emit(NOTIFICATION_AGGREGATE, params);
+      }
+   }
+   
+   private void removeAggregators(String address) {
+      final String prefix = address.toLowerCase();
+      
+      synchronized (aggregators) {
+         for (String key : new ArrayList <> (aggregators.keySet())) {
+            if (key.startsWith(prefix)) {
+               aggregators.remove(key);
+            }
+         }
+      }
+   }
+   
+   private LinkMonitor getLinkMonitor(String address) {
+      synchronized (linkMonitors) {
+         return linkMonitors.get(address);
+      }
+   }
+   
+   private void onOperationStarted(BluetoothGatt gatt) {
+      final LinkMonitor monitor = getLinkMonitor(gatt.getDevice().getAddress());
+      
+      if (monitor != null) {
+         monitor.onOperationStarted();
+      }
+   }
+   
+   private void onOperationCompleted(BluetoothGatt gatt, int status) {
+      final LinkMonitor monitor = getLinkMonitor(gatt.getDevice().getAddress());
+      
+      if (monitor != null) {
+         monitor.onOperationCompleted(status);
+      }
+   }
+   
+   private GattTransaction.Callback createEmittingCallback(
+      final String eventName,
+      ReadableMap options)
+   {
+      final String tag = options == null ? null :
+         Utils. <String> safeGet(options, "tag", String.class);
+      
+      return new GattTransaction.Callback() {
+         @Override
+         public void onFinished(
+            GattTransaction transaction,
+            int status,
+            String error,
+            WritableMap result)
+         {
+            final WritableMap params = putCommonGattParams(transaction.gatt, status);
+            
+            if (error != null) {
+               params.putString("message", error);
+            }
+            
+            if (result != null) {
+               params.merge(result);
+            }
+            
+            if (tag != null) {
+               params.putString("tag", tag);
+            }
+            
+            emit(eventName, params);
+         }
+      };
+   }
+   
+   private WritableMap createBroadcastResult(int status, String error) {
+      final WritableMap result = Arguments.createMap();
+      
+      result.putInt("status", status);
+      result.putBoolean("error", status != BluetoothGatt.GATT_SUCCESS);
+      
+      if (error != null) {
+         result.putString("message", error);
+      }
+      
+      return result;
+   }
+   
+   static void putValue(
+      WritableMap params,
+      String key,
+      byte [] value,
+      Map <String, Object> options)
+   {
+      if (options != null && Boolean.TRUE.equals(options.get("asBase64"))) {
+         params.putString(key, value == null ? null :
+            Base64.encodeToString(value, Base64.NO_WRAP));
+      } else if (options != null && Boolean.TRUE.equals(options.get("asString"))) {
+         final Object offset = options.get("offset");
+         final int start = offset == null ? 0 : ((Number)offset).intValue();
+         
+         params.putString(key, value == null || start > value.length ? null :
+            new String(value, start, value.length - start));
+      } else {
+         params.putArray(key, Utils.writableArrayFrom(value, options == null
+            || !options.containsKey("valueUnsigned") ? true :
+               !(Boolean)options.get("valueUnsigned")));
+      }
+   }
+   
+   private int getScriptTarget(
+      Map <String, Integer> labels,
+      ReadableMap map,
+      int defaultTarget)
+   {
+      final String label = Utils.safeGet(map, "goto", String.class);
+      
+      if (label == null) {
+         return defaultTarget;
+      }
+      
+      final Integer target = labels.get(label);
+      
+      if (target == null) {
+         throw new IllegalArgumentException(String.format(
+            "Unknown script label '%s'", label));
+      }
+      
+      return target;
+   }
+   
+   private Integer [] getScriptPattern(ReadableArray match) {
+      if (match == null) {
+         return null;
+      }
+      
+      final Integer [] pattern = new Integer[match.size()];
+      
+      for (int index = 0; index < pattern.length; index++) {
+         pattern[index] = match.isNull(index) ? null : match.getInt(index);
+      }
+      
+      return pattern;
+   }
+   
+   private Object [] getScriptTemplate(ReadableArray value) {
+      final Object [] template = new Object[value.size()];
+      
+      for (int index = 0; index < template.length; index++) {
+         template[index] = value.getType(index) == ReadableType.String ?
+            value.getString(index) : Integer.valueOf(value.getInt(index));
+      }
+      
+      return template;
+   }
+   
    private BluetoothAdapter getAdapterEnsureEnabled() {
       final BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
       
@@ -813,6 +2514,38 @@ class Module extends ReactContextBaseJavaModule {
       return adapter;
    }
    
+   private void setScanResultOptions(ReadableMap options) {
+      advertisementDataUnsigned = Utils.safeGet(
+         options, "advertisementDataUnsigned", true);
+      
+      emitScanResults = Utils.safeGet(options, "emitScanResults", true);
+      scanRecordAsBase64 = Utils.safeGet(options, "scanRecordAsBase64", false);
+      columnarBatches = isColumnarBatchFormat(options);
+   }
+   
+   private void setScheduledScanResultOptions() {
+      final ScanScheduler.Request format = scanScheduler.getResultFormat();
+      
+      emitScanResults = format != null;
+      
+      if (format != null) {
+         advertisementDataUnsigned = format.advertisementDataUnsigned;
+         scanRecordAsBase64 = format.scanRecordAsBase64;
+         columnarBatches = format.columnarBatches;
+      }
+   }
+   
+   private boolean isColumnarBatchFormat(ReadableMap options) {
+      final String batchFormat = Utils.safeGet(options, "batchFormat", BATCH_FORMAT_ROWS);
+      
+      if (!batchFormat.equals(BATCH_FORMAT_ROWS) && !batchFormat.equals(BATCH_FORMAT_COLUMNAR)) {
+         throw new IllegalArgumentException(String.format(
+            "Unknown batchFormat '%s'", batchFormat));
+      }
+      
+      return batchFormat.equals(BATCH_FORMAT_COLUMNAR);
+   }
+   
    private List <ScanFilter> getScanFilters(ReadableArray filters) {
       final List <ScanFilter> scanFilters = new ArrayList <> ();
       
@@ -868,9 +2601,9 @@ class Module extends ReactContextBaseJavaModule {
       final String readOptionsKey = getReadOptionsKey(parts);
       
       if (enable && options != null) {
-         readOptions.put(readOptionsKey, options.toHashMap());
+         connectionOwner.putReadOptions(readOptionsKey, options.toHashMap());
       } else {
-         readOptions.remove(readOptionsKey);
+         connectionOwner.removeReadOptions(readOptionsKey);
       }
    }
 }
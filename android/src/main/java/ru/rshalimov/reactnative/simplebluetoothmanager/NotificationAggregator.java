@@ -0,0 +1,277 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import ru.rshalimov.reactnative.common.Utils;
+
+final class NotificationAggregator {
+   private static final String [] TYPE_NAMES = {
+      "int8", "uint8", "int16", "uint16", "int32", "uint32", "float32", "float64"
+   };
+   
+   private static final int [] TYPE_SIZES = { 1, 1, 2, 2, 4, 4, 4, 8 };
+   
+   private static final int
+      TYPE_INT8 = 0,
+      TYPE_UINT8 = 1,
+      TYPE_INT16 = 2,
+      TYPE_UINT16 = 3,
+      TYPE_INT32 = 4,
+      TYPE_UINT32 = 5,
+      TYPE_FLOAT32 = 6;
+   
+   private final String key;
+   private final String [] names;
+   private final int [] types;
+   private final int [] offsets;
+   private final double [] scales;
+   private final int stride;
+   private final boolean littleEndian;
+   private final boolean repeat;
+   private final boolean emitEmpty;
+   private final int windowMillis;
+   private final double [] percentiles;
+   private final int maxSamples;
+   
+   private final double [] min;
+   private final double [] max;
+   private final double [] sum;
+   private final double [] last;
+   private final double [][] samples;
+   private final Random random = new Random();
+   
+   private int count;
+   private int malformed;
+   private int sampleCount;
+   private long seen;
+   private long windowStart = System.currentTimeMillis();
+   
+   NotificationAggregator(String key, ReadableMap options) {
+      this.key = key;
+      
+      final ReadableArray fields = options == null ? null :
+         Utils.safeGetArray(options, "fields");
+      
+      if (fields == null || fields.size() == 0) {
+         throw new IllegalArgumentException("Aggregation requires at least one field");
+      }
+      
+      names = new String[fields.size()];
+      types = new int[names.length];
+      offsets = new int[names.length];
+      scales = new double[names.length];
+      
+      int end = 0;
+      
+      for (int index = 0; index < names.length; index++) {
+         final ReadableMap field = fields.getMap(index);
+         final String type = field.getString("type");
+         
+         types[index] = Arrays.asList(TYPE_NAMES).indexOf(type);
+         
+         if (types[index] == -1) {
+            throw new IllegalArgumentException(String.format(
+               "Unknown field type '%s'", type));
+         }
+         
+         names[index] = Utils.safeGet(field, "name", String.valueOf(index));
+         offsets[index] = Utils.safeGet(field, "offset", end);
+         
+         if (offsets[index] < 0) {
+            throw new IllegalArgumentException(String.format(
+               "Field '%s' has a negative offset %d", names[index], offsets[index]));
+         }
+         
+         scales[index] = Utils.safeGet(field, "scale", 1.);
+         
+         end = Math.max(end, offsets[index] + TYPE_SIZES[types[index]]);
+      }
+      
+      stride = Utils.safeGet(options, "stride", end);
+      
+      if (stride < end) {
+         throw new IllegalArgumentException(String.format(
+            "Stride %d is shorter than a record of %d bytes", stride, end));
+      }
+      
+      littleEndian = Utils.safeGet(options, "littleEndian", true);
+      repeat = Utils.safeGet(options, "repeat", false);
+      emitEmpty = Utils.safeGet(options, "emitEmpty", false);
+      windowMillis = Math.max(10, Utils.safeGet(options, "windowMillis", 1000));
+      maxSamples = Math.max(1, Utils.safeGet(options, "maxSamples", 4096));
+      
+      final ReadableArray requestedPercentiles = Utils.safeGetArray(options, "percentiles");
+      
+      percentiles = new double[requestedPercentiles == null ? 0 : requestedPercentiles.size()];
+      
+      for (int index = 0; index < percentiles.length; index++) {
+         percentiles[index] = requestedPercentiles.getDouble(index);
+         
+         if (percentiles[index] < 0 || percentiles[index] > 100) {
+            throw new IllegalArgumentException(String.format(
+               "Percentile %s is out of range", percentiles[index]));
+         }
+      }
+      
+      min = new double[names.length];
+      max = new double[names.length];
+      sum = new double[names.length];
+      last = new double[names.length];
+      samples = new double[names.length][percentiles.length == 0 ? 0 : maxSamples];
+      
+      reset();
+   }
+   
+   String getKey() {
+      return key;
+   }
+   
+   int getWindowMillis() {
+      return windowMillis;
+   }
+   
+   synchronized void add(byte [] value) {
+      final int records = value.length < stride ? 0 : repeat ? value.length / stride : 1;
+      
+      if (records == 0 || (repeat && value.length % stride != 0)) {
+         malformed++;
+      }
+      
+      for (int record = 0; record < records; record++) {
+         int slot = -1;
+         
+         if (percentiles.length != 0) {
+            seen++;
+            
+            if (sampleCount < maxSamples) {
+               slot = sampleCount++;
+            } else {
+               final long candidate = (long)(random.nextDouble() * seen);
+               
+               slot = candidate < maxSamples ? (int)candidate : -1;
+            }
+         }
+         
+         for (int field = 0; field < names.length; field++) {
+            final double v = read(value, record * stride + offsets[field], types[field]) * scales[field];
+            
+            min[field] = Math.min(min[field], v);
+            max[field] = Math.max(max[field], v);
+            sum[field] += v;
+            last[field] = v;
+            
+            if (slot != -1) {
+               samples[field][slot] = v;
+            }
+         }
+         
+         count++;
+      }
+   }
+   
+   synchronized WritableMap flush() {
+      final long now = System.currentTimeMillis();
+      
+      WritableMap params = null;
+      
+      if (count != 0 || emitEmpty) {
+         final WritableMap fields = Arguments.createMap();
+         
+         for (int field = 0; field < names.length; field++) {
+            final WritableMap summary = Arguments.createMap();
+            
+            if (count != 0) {
+               summary.putDouble("min", min[field]);
+               summary.putDouble("max", max[field]);
+               summary.putDouble("mean", sum[field] / count);
+               summary.putDouble("last", last[field]);
+            }
+            
+            if (percentiles.length != 0 && sampleCount != 0) {
+               final double [] sorted = Arrays.copyOf(samples[field], sampleCount);
+               final WritableMap values = Arguments.createMap();
+               
+               Arrays.sort(sorted);
+               
+               for (double percentile : percentiles) {
+                  final int rank = (int)Math.ceil(percentile / 100 * sorted.length) - 1;
+                  
+                  values.putDouble(String.format("p%s", percentile % 1 == 0 ?
+                     String.valueOf((int)percentile) : String.valueOf(percentile)),
+                        sorted[Math.max(0, Math.min(rank, sorted.length - 1))]);
+               }
+               
+               summary.putMap("percentiles", values);
+            }
+            
+            fields.putMap(names[field], summary);
+         }
+         
+         params = Arguments.createMap();
+         
+         params.putDouble("windowStart", windowStart);
+         params.putDouble("windowMillis", now - windowStart);
+         params.putInt("count", count);
+         params.putInt("malformed", malformed);
+         params.putMap("fields", fields);
+      }
+      
+      windowStart = now;
+      
+      reset();
+      
+      return params;
+   }
+   
+   private void reset() {
+      Arrays.fill(min, Double.POSITIVE_INFINITY);
+      Arrays.fill(max, Double.NEGATIVE_INFINITY);
+      Arrays.fill(sum, 0);
+      Arrays.fill(last, Double.NaN);
+      
+      count = 0;
+      malformed = 0;
+      sampleCount = 0;
+      seen = 0;
+   }
+   
+   private double read(byte [] value, int offset, int type) {
+      final int size = TYPE_SIZES[type];
+      
+      long bits = 0;
+      
+      for (int index = 0; index < size; index++) {
+         final int b = value[offset + (littleEndian ? size - 1 - index : index)] & 0xFF;
+         
+         bits = bits << 8 | b;
+      }
+      
+      switch (type) {
+         case TYPE_INT8:
+            return (byte)bits;
+         
+         case TYPE_UINT8:
+         case TYPE_UINT16:
+         case TYPE_UINT32:
+            return bits;
+         
+         case TYPE_INT16:
+            return (short)bits;
+         
+         case TYPE_INT32:
+            return (int)bits;
+         
+         case TYPE_FLOAT32:
+            return Float.intBitsToFloat((int)bits);
+         
+         default:
+            return Double.longBitsToDouble(bits);
+      }
+   }
+}
@@ -0,0 +1,126 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+
+import java.util.List;
+import java.util.Map;
+
+final class ReadSetTransaction extends GattTransaction {
+   static final class Item {
+      final String key;
+      final BluetoothGattCharacteristic characteristic;
+      final BluetoothGattDescriptor descriptor;
+      final Map <String, Object> options;
+      
+      Item(
+         String key,
+         BluetoothGattCharacteristic characteristic,
+         BluetoothGattDescriptor descriptor,
+         Map <String, Object> options)
+      {
+         this.key = key;
+         this.characteristic = characteristic;
+         this.descriptor = descriptor;
+         this.options = options;
+      }
+   }
+   
+   private final List <Item> items;
+   private final CharacteristicCache cache;
+   private final WritableMap values = Arguments.createMap();
+   
+   private int index = -1;
+   
+   ReadSetTransaction(
+      BluetoothGatt gatt,
+      List <Item> items,
+      CharacteristicCache cache,
+      Callback callback)
+   {
+      super(gatt, callback);
+      
+      this.items = items;
+      this.cache = cache;
+   }
+   
+   @Override
+   void start() {
+      readNext();
+   }
+   
+   @Override
+   boolean onCharacteristicRead(BluetoothGattCharacteristic ch, int status) {
+      return onRead(ch, null, status);
+   }
+   
+   @Override
+   boolean onDescriptorRead(BluetoothGattDescriptor descriptor, int status) {
+      return onRead(descriptor.getCharacteristic(), descriptor, status);
+   }
+   
+   private boolean onRead(
+      BluetoothGattCharacteristic ch,
+      BluetoothGattDescriptor descriptor,
+      int status)
+   {
+      if (isFinished() || index >= items.size()) {
+         return false;
+      }
+      
+      final Item item = items.get(index);
+      
+      if (item.characteristic != ch || item.descriptor != descriptor) {
+         return false;
+      }
+      
+      if (status != BluetoothGatt.GATT_SUCCESS) {
+         fail(status, String.format("Reading '%s' from '%s' failed with status %d",
+            item.key, getAddress(), status));
+      } else {
+         Module.putValue(values, item.key, descriptor == null ?
+            ch.getValue() : descriptor.getValue(), item.options);
+         
+         readNext();
+      }
+      
+      return true;
+   }
+   
+   private void readNext() {
+      for (index++; index < items.size(); index++) {
+         final Item item = items.get(index);
+         
+         final byte [] cachedValue = item.descriptor == null ?
+            cache.get(getAddress(), item.characteristic) : null;
+         
+         if (cachedValue == null) {
+            break;
+         }
+         
+         Module.putValue(values, item.key, cachedValue, item.options);
+      }
+      
+      if (index == items.size()) {
+         finish(BluetoothGatt.GATT_SUCCESS, null, values);
+      } else {
+         final Item item = items.get(index);
+         
+         if (!(item.descriptor == null ?
+            gatt.readCharacteristic(item.characteristic) :
+            gatt.readDescriptor(item.descriptor)))
+         {
+            fail(BluetoothGatt.GATT_FAILURE, String.format(
+               "BluetoothGatt.read%s() failed for '%s' of '%s'",
+                  item.descriptor == null ? "Characteristic" : "Descriptor",
+                  item.key, getAddress()));
+         } else {
+            operationIssued();
+         }
+      }
+   }
+}
@@ -0,0 +1,39 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGatt;
+
+final class RssiTransaction extends GattTransaction {
+   RssiTransaction(BluetoothGatt gatt, Callback callback) {
+      super(gatt, callback);
+   }
+   
+   @Override
+   void start() {
+      if (!gatt.readRemoteRssi()) {
+         throw new IllegalStateException(String.format(
+            "BluetoothGatt.readRemoteRssi() failed for '%s'", getAddress()));
+      }
+   }
+   
+   @Override
+   boolean onReadRemoteRssi(int rssi, int status) {
+      if (isFinished()) {
+         return false;
+      }
+      
+      if (status == BluetoothGatt.GATT_SUCCESS) {
+         final WritableMap result = Arguments.createMap();
+         
+         result.putInt("rssi", rssi);
+         
+         finish(status, null, result);
+      } else {
+         fail(status, String.format("Reading RSSI of '%s' failed", getAddress()));
+      }
+      
+      return true;
+   }
+}
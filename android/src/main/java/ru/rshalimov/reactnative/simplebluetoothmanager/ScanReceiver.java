@@ -0,0 +1,32 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanResult;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.util.List;
+
+public class ScanReceiver extends BroadcastReceiver {
+   @Override
+   public void onReceive(Context context, Intent intent) {
+      if (!BackgroundScan.ACTION_SCAN_RESULT.equals(intent.getAction())) {
+         return;
+      }
+      
+      final int errorCode = intent.getIntExtra(BluetoothLeScanner.EXTRA_ERROR_CODE, 0);
+      
+      if (errorCode != 0) {
+         Log.w(Module.TAG, String.format("ScanReceiver: scan failed with error code %d", errorCode));
+      }
+      
+      final List <ScanResult> results =
+         intent.getParcelableArrayListExtra(BluetoothLeScanner.EXTRA_LIST_SCAN_RESULT);
+      
+      if (results != null && !results.isEmpty()) {
+         BackgroundScan.onScanResults(context, results);
+      }
+   }
+}
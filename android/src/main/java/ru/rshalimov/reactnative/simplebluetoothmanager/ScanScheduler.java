@@ -0,0 +1,350 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanSettings;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ru.rshalimov.reactnative.common.Utils;
+
+final class ScanScheduler {
+   interface Listener {
+      void onScanStateChanged(String state, String reason, int errorCode);
+   }
+   
+   static final class Request {
+      final List <ScanFilter> filters;
+      final int scanMode;
+      final long reportDelay;
+      final boolean emitScanResults;
+      final boolean scanRecordAsBase64;
+      final boolean advertisementDataUnsigned;
+      final boolean columnarBatches;
+      
+      Request(
+         List <ScanFilter> filters,
+         int scanMode,
+         long reportDelay,
+         boolean emitScanResults,
+         boolean scanRecordAsBase64,
+         boolean advertisementDataUnsigned,
+         boolean columnarBatches)
+      {
+         this.filters = filters;
+         this.scanMode = scanMode;
+         this.reportDelay = reportDelay;
+         this.emitScanResults = emitScanResults;
+         this.scanRecordAsBase64 = scanRecordAsBase64;
+         this.advertisementDataUnsigned = advertisementDataUnsigned;
+         this.columnarBatches = columnarBatches;
+      }
+      
+      boolean hasResultFormatOf(Request request) {
+         return scanRecordAsBase64 == request.scanRecordAsBase64
+            && advertisementDataUnsigned == request.advertisementDataUnsigned
+            && columnarBatches == request.columnarBatches;
+      }
+   }
+   
+   static final String
+      STATE_STOPPED = "stopped",
+      STATE_SCANNING = "scanning",
+      STATE_IDLE = "idle",
+      STATE_THROTTLED = "throttled";
+   
+   private static final int SCAN_FAILED_SCANNING_TOO_FREQUENTLY = 6;
+   
+   private final Handler handler;
+   private final ScanCallback scanCallback;
+   private final Listener listener;
+   private final Map <String, Request> requests = new LinkedHashMap <> ();
+   private final ArrayDeque <Long> starts = new ArrayDeque <> ();
+   
+   private final Runnable tick = new Runnable() {
+      @Override
+      public void run() {
+         onTick();
+      }
+   };
+   
+   private long scanWindowMillis;
+   private long idleWindowMillis;
+   private long maxScanMillis = 25 * 60 * 1000;
+   private int maxStarts = 5;
+   private long startWindowMillis = 30 * 1000;
+   
+   private String state = STATE_STOPPED;
+   private boolean hardwareScanning;
+   private boolean restartPending;
+   private long scanStartedAt;
+   private List <ScanFilter> scanFilters;
+   private ScanSettings scanSettings;
+   
+   ScanScheduler(Handler handler, ScanCallback scanCallback, Listener listener) {
+      this.handler = handler;
+      this.scanCallback = scanCallback;
+      this.listener = listener;
+   }
+   
+   synchronized boolean isActive() {
+      return !requests.isEmpty();
+   }
+   
+   synchronized void configure(ReadableMap options) {
+      if (options != null) {
+         scanWindowMillis = Utils.safeGet(options, "scanWindowMillis", (double)scanWindowMillis).longValue();
+         idleWindowMillis = Utils.safeGet(options, "idleWindowMillis", (double)idleWindowMillis).longValue();
+         maxScanMillis = Utils.safeGet(options, "maxScanMillis", (double)maxScanMillis).longValue();
+         maxStarts = Math.max(1, Utils.safeGet(options, "maxStarts", maxStarts));
+         startWindowMillis = Utils.safeGet(options, "startWindowMillis", (double)startWindowMillis).longValue();
+      }
+      
+      if (hardwareScanning && !restartPending) {
+         handler.removeCallbacks(tick);
+         
+         handler.postDelayed(tick, Math.max(0, getScanMillis()
+            - (SystemClock.elapsedRealtime() - scanStartedAt)));
+      }
+   }
+   
+   synchronized Request getResultFormat() {
+      for (Request request : requests.values()) {
+         if (request.emitScanResults) {
+            return request;
+         }
+      }
+      
+      return null;
+   }
+   
+   synchronized void request(String clientId, Request request) {
+      for (Map.Entry <String, Request> other : requests.entrySet()) {
+         if (request.emitScanResults
+            && other.getValue().emitScanResults
+            && !other.getKey().equals(clientId)
+            && !request.hasResultFormatOf(other.getValue()))
+         {
+            throw new IllegalArgumentException(String.format(
+               "Scan result options of '%s' conflict with those of '%s'",
+                  clientId, other.getKey()));
+         }
+      }
+      
+      requests.put(clientId, request);
+      
+      update("requested");
+   }
+   
+   synchronized boolean release(String clientId) {
+      final boolean released = requests.remove(clientId) != null;
+      
+      if (released) {
+         if (requests.isEmpty()) {
+            stop("released");
+         } else {
+            update("released");
+         }
+      }
+      
+      return released;
+   }
+   
+   synchronized void releaseAll() {
+      requests.clear();
+      
+      stop("released");
+   }
+   
+   synchronized void onScanFailed(int errorCode) {
+      if (!requests.isEmpty()) {
+         hardwareScanning = false;
+         restartPending = false;
+         
+         handler.removeCallbacks(tick);
+         
+         if (errorCode == ScanCallback.SCAN_FAILED_APPLICATION_REGISTRATION_FAILED
+            || errorCode == SCAN_FAILED_SCANNING_TOO_FREQUENTLY)
+         {
+            setState(STATE_THROTTLED, "scanFailed", errorCode);
+            
+            handler.postDelayed(tick, startWindowMillis);
+         } else {
+            setState(STATE_STOPPED, "scanFailed", errorCode);
+         }
+      }
+   }
+   
+   private void onTick() {
+      synchronized (this) {
+         if (requests.isEmpty()) {
+            return;
+         }
+         
+         if (hardwareScanning && !restartPending && scanWindowMillis > 0 && idleWindowMillis > 0) {
+            stopHardware();
+            
+            setState(STATE_IDLE, "dutyCycle", 0);
+            
+            handler.postDelayed(tick, idleWindowMillis);
+         } else {
+            restart(hardwareScanning ? "renewed" : "resumed");
+         }
+      }
+   }
+   
+   private void update(String reason) {
+      if (hardwareScanning ? !isScanning(getMergedFilters(), getMergedSettings())
+         : state.equals(STATE_STOPPED))
+      {
+         restart(reason);
+      }
+   }
+   
+   private void restart(String reason) {
+      handler.removeCallbacks(tick);
+      
+      final long now = SystemClock.elapsedRealtime();
+      
+      while (!starts.isEmpty() && now - starts.peek() >= startWindowMillis) {
+         starts.poll();
+      }
+      
+      if (starts.size() >= maxStarts) {
+         if (hardwareScanning) {
+            restartPending = true;
+            
+            Log.d(Module.TAG, String.format("ScanScheduler: restart deferred (%s)", reason));
+         } else {
+            setState(STATE_THROTTLED, "startQuota", 0);
+         }
+         
+         handler.postDelayed(tick, starts.peek() + startWindowMillis - now);
+         
+         return;
+      }
+      
+      stopHardware();
+      
+      restartPending = false;
+      
+      final List <ScanFilter> filters = getMergedFilters();
+      final ScanSettings settings = getMergedSettings();
+      
+      try {
+         final BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+         
+         if (!adapter.isEnabled()) {
+            throw new IllegalStateException("Bluetooth is not enabled");
+         }
+         
+         final BluetoothLeScanner scanner = adapter.getBluetoothLeScanner();
+         
+         scanner.startScan(filters, settings, scanCallback);
+      } catch (IllegalStateException e) {
+         Log.w(Module.TAG, String.format("ScanScheduler: %s", e.getMessage()));
+         
+         setState(STATE_STOPPED, "error", 0);
+         
+         return;
+      }
+      
+      starts.add(now);
+      hardwareScanning = true;
+      scanStartedAt = now;
+      scanFilters = filters;
+      scanSettings = settings;
+      
+      setState(STATE_SCANNING, reason, 0);
+      
+      handler.postDelayed(tick, getScanMillis());
+   }
+   
+   private void stop(String reason) {
+      handler.removeCallbacks(tick);
+      
+      stopHardware();
+      
+      setState(STATE_STOPPED, reason, 0);
+   }
+   
+   private void stopHardware() {
+      if (hardwareScanning) {
+         hardwareScanning = false;
+         
+         try {
+            BluetoothAdapter.getDefaultAdapter().getBluetoothLeScanner().stopScan(scanCallback);
+         } catch (IllegalStateException e) {
+            Log.w(Module.TAG, String.format("ScanScheduler: %s", e.getMessage()));
+         }
+         
+         Log.d(Module.TAG, String.format("ScanScheduler: scanned for %d ms",
+            SystemClock.elapsedRealtime() - scanStartedAt));
+      }
+   }
+   
+   private boolean isScanning(List <ScanFilter> filters, ScanSettings settings) {
+      return filters.equals(scanFilters)
+         && settings.getScanMode() == scanSettings.getScanMode()
+         && settings.getReportDelayMillis() == scanSettings.getReportDelayMillis();
+   }
+   
+   private long getScanMillis() {
+      return scanWindowMillis > 0 ? Math.min(scanWindowMillis, maxScanMillis) : maxScanMillis;
+   }
+   
+   private List <ScanFilter> getMergedFilters() {
+      final List <ScanFilter> filters = new ArrayList <> ();
+      
+      for (Request request : requests.values()) {
+         if (request.filters.isEmpty()) {
+            return new ArrayList <> ();
+         }
+         
+         for (ScanFilter filter : request.filters) {
+            if (!filters.contains(filter)) {
+               filters.add(filter);
+            }
+         }
+      }
+      
+      return filters;
+   }
+   
+   private ScanSettings getMergedSettings() {
+      int scanMode = ScanSettings.SCAN_MODE_OPPORTUNISTIC;
+      long reportDelay = Long.MAX_VALUE;
+      
+      for (Request request : requests.values()) {
+         scanMode = Math.max(scanMode, request.scanMode);
+         reportDelay = Math.min(reportDelay, request.reportDelay);
+      }
+      
+      return new ScanSettings.Builder()
+         .setScanMode(scanMode)
+         .setReportDelay(reportDelay)
+         .build();
+   }
+   
+   private void setState(String newState, String reason, int errorCode) {
+      if (!newState.equals(state) || newState.equals(STATE_THROTTLED)) {
+         state = newState;
+         
+         Log.d(Module.TAG, String.format("ScanScheduler: %s (%s, %d)",
+            newState, reason, errorCode));
+         
+         listener.onScanStateChanged(newState, reason, errorCode);
+      }
+   }
+}
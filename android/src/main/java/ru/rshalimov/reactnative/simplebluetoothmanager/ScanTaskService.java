@@ -0,0 +1,43 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.HeadlessJsTaskService;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.jstasks.HeadlessJsTaskConfig;
+
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+
+public class ScanTaskService extends HeadlessJsTaskService {
+   static final String
+      EXTRA_DATA = "data",
+      EXTRA_TIMEOUT = "timeout";
+   
+   private static final int NOTIFICATION_ID = 0x5b4e;
+   
+   @Override
+   public int onStartCommand(Intent intent, int flags, int startId) {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+         startForeground(NOTIFICATION_ID, ConnectionService.createNotification(this, intent));
+      }
+      
+      if (getTaskConfig(intent) == null) {
+         stopSelf(startId);
+         
+         return START_NOT_STICKY;
+      }
+      
+      return super.onStartCommand(intent, flags, startId);
+   }
+   
+   @Override
+   protected HeadlessJsTaskConfig getTaskConfig(Intent intent) {
+      final Bundle data = intent == null ? null : intent.getBundleExtra(EXTRA_DATA);
+      
+      return data == null ? null : new HeadlessJsTaskConfig(
+         BackgroundScan.TASK_NAME,
+         Arguments.fromBundle(data),
+         intent.getLongExtra(EXTRA_TIMEOUT, 10000),
+         true);
+   }
+}
@@ -0,0 +1,402 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.Handler;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class ScriptTransaction extends GattTransaction {
+   static final class Branch {
+      final Integer [] pattern;
+      final boolean prefix;
+      final int target;
+      
+      Branch(Integer [] pattern, boolean prefix, int target) {
+         this.pattern = pattern;
+         this.prefix = prefix;
+         this.target = target;
+      }
+      
+      boolean matches(byte [] value) {
+         if (pattern == null) {
+            return true;
+         }
+         
+         if (prefix ? value.length < pattern.length : value.length != pattern.length) {
+            return false;
+         }
+         
+         for (int index = 0; index < pattern.length; index++) {
+            if (pattern[index] != null && (pattern[index] & 0xFF) != (value[index] & 0xFF)) {
+               return false;
+            }
+         }
+         
+         return true;
+      }
+   }
+   
+   static final class Step {
+      final String op;
+      final BluetoothGattCharacteristic characteristic;
+      final Object [] template;
+      final Boolean withResponse;
+      final String capture;
+      final List <Branch> branches;
+      final long timeoutMillis;
+      
+      Step(
+         String op,
+         BluetoothGattCharacteristic characteristic,
+         Object [] template,
+         Boolean withResponse,
+         String capture,
+         List <Branch> branches,
+         long timeoutMillis)
+      {
+         this.op = op;
+         this.characteristic = characteristic;
+         this.template = template;
+         this.withResponse = withResponse;
+         this.capture = capture;
+         this.branches = branches;
+         this.timeoutMillis = timeoutMillis;
+      }
+   }
+   
+   private static final class Notification {
+      final BluetoothGattCharacteristic characteristic;
+      final byte [] value;
+      
+      Notification(BluetoothGattCharacteristic characteristic, byte [] value) {
+         this.characteristic = characteristic;
+         this.value = value;
+      }
+   }
+   
+   static final String
+      OP_WRITE = "write",
+      OP_READ = "read",
+      OP_WAIT_NOTIFICATION = "waitNotification",
+      LABEL_END = "end";
+   
+   private static final int MAX_BUFFERED_NOTIFICATIONS = 16;
+   
+   private final List <Step> steps;
+   private final Map <String, byte []> captures = new LinkedHashMap <> ();
+   private final Map <String, byte []> variables;
+   private final Map <String, Object> captureOptions;
+   private final ArrayDeque <Notification> notifications = new ArrayDeque <> ();
+   private final Handler handler;
+   private final int maxSteps;
+   
+   private final Runnable timeout = new Runnable() {
+      @Override
+      public void run() {
+         onTimeout();
+      }
+   };
+   
+   private int index = -1;
+   private int executed;
+   private int originalWriteType = -1;
+   
+   ScriptTransaction(
+      BluetoothGatt gatt,
+      List <Step> steps,
+      Map <String, byte []> variables,
+      Map <String, Object> captureOptions,
+      int maxSteps,
+      Handler handler,
+      Callback callback)
+   {
+      super(gatt, callback);
+      
+      this.steps = steps;
+      this.variables = variables;
+      this.captureOptions = captureOptions;
+      this.maxSteps = maxSteps;
+      this.handler = handler;
+   }
+   
+   @Override
+   synchronized void start() {
+      runStep(0);
+   }
+   
+   @Override
+   synchronized boolean onCharacteristicRead(BluetoothGattCharacteristic ch, int status) {
+      final Step step = getCurrentStep(OP_READ, ch);
+      
+      if (step == null) {
+         return false;
+      }
+      
+      if (status != BluetoothGatt.GATT_SUCCESS) {
+         fail(status, String.format("Step %d (read %s) of the script for '%s' failed",
+            index, ch.getUuid(), getAddress()));
+      } else {
+         final byte [] value = ch.getValue().clone();
+         final int target = getTarget(step, value);
+         
+         if (target < 0) {
+            fail(BluetoothGatt.GATT_FAILURE, String.format(
+               "Step %d (read %s) of the script for '%s' got an unexpected value",
+                  index, ch.getUuid(), getAddress()));
+         } else {
+            complete(step, value, target);
+         }
+      }
+      
+      return true;
+   }
+   
+   @Override
+   synchronized boolean onCharacteristicWrite(BluetoothGattCharacteristic ch, int status) {
+      final Step step = getCurrentStep(OP_WRITE, ch);
+      
+      if (step == null) {
+         return false;
+      }
+      
+      restoreWriteType(ch);
+      
+      if (status != BluetoothGatt.GATT_SUCCESS) {
+         fail(status, String.format("Step %d (write %s) of the script for '%s' failed",
+            index, ch.getUuid(), getAddress()));
+      } else {
+         complete(step, null, step.branches.get(0).target);
+      }
+      
+      return true;
+   }
+   
+   @Override
+   synchronized boolean onCharacteristicChanged(BluetoothGattCharacteristic ch) {
+      if (isFinished()) {
+         return false;
+      }
+      
+      final byte [] value = ch.getValue().clone();
+      final Step step = getCurrentStep(OP_WAIT_NOTIFICATION, ch);
+      
+      if (step != null) {
+         final int target = getTarget(step, value);
+         
+         if (target >= 0) {
+            complete(step, value, target);
+         }
+         
+         return target >= 0;
+      }
+      
+      if (isAwaited(ch)) {
+         if (notifications.size() == MAX_BUFFERED_NOTIFICATIONS) {
+            notifications.poll();
+         }
+         
+         notifications.add(new Notification(ch, value));
+      }
+      
+      return false;
+   }
+   
+   @Override
+   synchronized void fail(int status, String error) {
+      handler.removeCallbacks(timeout);
+      
+      if (index >= 0 && index < steps.size()) {
+         restoreWriteType(steps.get(index).characteristic);
+      }
+      
+      finish(status, error, null);
+   }
+   
+   private void runStep(int target) {
+      handler.removeCallbacks(timeout);
+      
+      index = target;
+      
+      if (index == steps.size()) {
+         final WritableMap result = Arguments.createMap();
+         
+         for (Map.Entry <String, byte []> capture : captures.entrySet()) {
+            Module.putValue(result, capture.getKey(), capture.getValue(), captureOptions);
+         }
+         
+         finish(BluetoothGatt.GATT_SUCCESS, null, result);
+         
+         return;
+      }
+      
+      if (++executed > maxSteps) {
+         fail(BluetoothGatt.GATT_FAILURE, String.format(
+            "The script for '%s' exceeded %d steps", getAddress(), maxSteps));
+         
+         return;
+      }
+      
+      final Step step = steps.get(index);
+      
+      if (step.op.equals(OP_WAIT_NOTIFICATION)) {
+         final Iterator <Notification> iterator = notifications.iterator();
+         
+         while (iterator.hasNext()) {
+            final Notification notification = iterator.next();
+            
+            if (notification.characteristic == step.characteristic) {
+               iterator.remove();
+               
+               final int next = getTarget(step, notification.value);
+               
+               if (next >= 0) {
+                  complete(step, notification.value, next);
+                  
+                  return;
+               }
+            }
+         }
+         
+         if (step.timeoutMillis > 0) {
+            disarmWatchdog();
+         } else {
+            armWatchdog();
+         }
+      } else if (step.op.equals(OP_READ)) {
+         if (!gatt.readCharacteristic(step.characteristic)) {
+            fail(BluetoothGatt.GATT_FAILURE, String.format(
+               "BluetoothGatt.readCharacteristic() failed at step %d of the script for '%s'",
+                  index, getAddress()));
+            
+            return;
+         }
+         
+         operationIssued();
+      } else {
+         final byte [] value;
+         
+         try {
+            value = expand(step.template);
+         } catch (IllegalStateException e) {
+            fail(BluetoothGatt.GATT_FAILURE, e.getMessage());
+            
+            return;
+         }
+         
+         if (step.withResponse != null) {
+            originalWriteType = step.characteristic.getWriteType();
+            
+            step.characteristic.setWriteType(step.withResponse ?
+               BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT :
+               BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+         }
+         
+         if (!step.characteristic.setValue(value)
+            || !gatt.writeCharacteristic(step.characteristic))
+         {
+            fail(BluetoothGatt.GATT_FAILURE, String.format(
+               "BluetoothGatt.writeCharacteristic() failed at step %d of the script for '%s'",
+                  index, getAddress()));
+            
+            return;
+         }
+         
+         operationIssued();
+      }
+      
+      if (step.timeoutMillis > 0) {
+         handler.postDelayed(timeout, step.timeoutMillis);
+      }
+   }
+   
+   private void complete(Step step, byte [] value, int target) {
+      if (step.capture != null && value != null) {
+         captures.put(step.capture, value);
+      }
+      
+      runStep(target);
+   }
+   
+   private synchronized void onTimeout() {
+      if (!isFinished() && index >= 0 && index < steps.size()) {
+         final Step step = steps.get(index);
+         
+         fail(BluetoothGatt.GATT_FAILURE, String.format(
+            "Step %d (%s %s) of the script for '%s' timed out after %d ms",
+               index, step.op, step.characteristic.getUuid(), getAddress(), step.timeoutMillis));
+      }
+   }
+   
+   private Step getCurrentStep(String op, BluetoothGattCharacteristic ch) {
+      if (isFinished() || index < 0 || index >= steps.size()) {
+         return null;
+      }
+      
+      final Step step = steps.get(index);
+      
+      return step.op.equals(op) && step.characteristic == ch ? step : null;
+   }
+   
+   private int getTarget(Step step, byte [] value) {
+      for (Branch branch : step.branches) {
+         if (branch.matches(value)) {
+            return branch.target;
+         }
+      }
+      
+      return -1;
+   }
+   
+   private boolean isAwaited(BluetoothGattCharacteristic ch) {
+      for (Step step : steps) {
+         if (step.op.equals(OP_WAIT_NOTIFICATION) && step.characteristic == ch) {
+            return true;
+         }
+      }
+      
+      return false;
+   }
+   
+   private byte [] expand(Object [] template) {
+      final ByteArrayOutputStream value = new ByteArrayOutputStream();
+      
+      for (Object part : template) {
+         if (part instanceof String) {
+            byte [] capture = captures.get(part);
+            
+            if (capture == null) {
+               capture = variables.get(part);
+            }
+            
+            if (capture == null) {
+               throw new IllegalStateException(String.format(
+                  "Step %d of the script for '%s' references unknown capture '%s'",
+                     index, getAddress(), part));
+            }
+            
+            value.write(capture, 0, capture.length);
+         } else {
+            value.write((Integer)part);
+         }
+      }
+      
+      return value.toByteArray();
+   }
+   
+   private void restoreWriteType(BluetoothGattCharacteristic ch) {
+      if (originalWriteType != -1) {
+         ch.setWriteType(originalWriteType);
+         
+         originalWriteType = -1;
+      }
+   }
+}
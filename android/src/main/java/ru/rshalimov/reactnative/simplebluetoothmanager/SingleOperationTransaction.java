@@ -0,0 +1,76 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+
+final class SingleOperationTransaction extends GattTransaction {
+   interface Operation {
+      boolean execute();
+   }
+   
+   private final Object target;
+   private final boolean read;
+   private final Operation operation;
+   
+   private boolean issued;
+   
+   SingleOperationTransaction(
+      BluetoothGatt gatt,
+      Object target,
+      boolean read,
+      Operation operation,
+      Callback callback)
+   {
+      super(gatt, callback);
+      
+      this.target = target;
+      this.read = read;
+      this.operation = operation;
+   }
+   
+   synchronized boolean isIssued() {
+      return issued;
+   }
+   
+   @Override
+   synchronized void start() {
+      issued = operation.execute();
+      
+      if (issued) {
+         operationIssued();
+      } else {
+         finish(BluetoothGatt.GATT_SUCCESS, null, null);
+      }
+   }
+   
+   @Override
+   boolean onCharacteristicRead(BluetoothGattCharacteristic ch, int status) {
+      return onCompleted(ch, true, status);
+   }
+   
+   @Override
+   boolean onCharacteristicWrite(BluetoothGattCharacteristic ch, int status) {
+      return onCompleted(ch, false, status);
+   }
+   
+   @Override
+   boolean onDescriptorRead(BluetoothGattDescriptor descriptor, int status) {
+      return onCompleted(descriptor, true, status);
+   }
+   
+   @Override
+   boolean onDescriptorWrite(BluetoothGattDescriptor descriptor, int status) {
+      return onCompleted(descriptor, false, status);
+   }
+   
+   private synchronized boolean onCompleted(Object object, boolean read, int status) {
+      if (isFinished() || !issued || object != target || read != this.read) {
+         return false;
+      }
+      
+      finish(status, null, null);
+      
+      return true;
+   }
+}
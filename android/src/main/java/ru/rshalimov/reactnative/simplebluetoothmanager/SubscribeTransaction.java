@@ -0,0 +1,161 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+
+import java.util.List;
+import java.util.UUID;
+
+final class SubscribeTransaction extends GattTransaction {
+   static final class Item {
+      final String serviceUuid;
+      final String characteristicUuid;
+      final BluetoothGattDescriptor cccd;
+      final byte [] value;
+      final ReadableMap options;
+      
+      Item(
+         String serviceUuid,
+         String characteristicUuid,
+         BluetoothGattDescriptor cccd,
+         byte [] value,
+         ReadableMap options)
+      {
+         this.serviceUuid = serviceUuid;
+         this.characteristicUuid = characteristicUuid;
+         this.cccd = cccd;
+         this.value = value;
+         this.options = options;
+      }
+      
+      boolean isEnabled() {
+         return value != BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE;
+      }
+      
+      String getMode() {
+         return value == BluetoothGattDescriptor.ENABLE_INDICATION_VALUE ? MODE_INDICATE :
+            value == BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE ? MODE_NOTIFY : null;
+      }
+   }
+   
+   static final UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+   
+   static final String
+      MODE_NOTIFY = "notify",
+      MODE_INDICATE = "indicate";
+   
+   private final List <Item> items;
+   
+   private int index = -1;
+   
+   SubscribeTransaction(BluetoothGatt gatt, List <Item> items, Callback callback) {
+      super(gatt, callback);
+      
+      this.items = items;
+   }
+   
+   static byte [] getCccdValue(BluetoothGattCharacteristic ch, boolean enable, String mode) {
+      if (!enable) {
+         return BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE;
+      }
+      
+      final int properties = ch.getProperties();
+      final boolean notify = (properties & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0;
+      final boolean indicate = (properties & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0;
+      
+      if (mode == null ? !notify && !indicate : mode.equals(MODE_NOTIFY) ? !notify :
+         mode.equals(MODE_INDICATE) ? !indicate : true)
+      {
+         throw new IllegalArgumentException(String.format(
+            "Characteristic '%s' doesn't support %s", ch.getUuid(),
+               mode == null ? "notifications or indications" : String.format("mode '%s'", mode)));
+      }
+      
+      return (mode == null ? notify : mode.equals(MODE_NOTIFY)) ?
+         BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE :
+         BluetoothGattDescriptor.ENABLE_INDICATION_VALUE;
+   }
+   
+   List <Item> getCompletedItems() {
+      return items.subList(0, Math.max(0, Math.min(index, items.size())));
+   }
+   
+   @Override
+   void start() {
+      writeNext();
+   }
+   
+   @Override
+   boolean onDescriptorWrite(BluetoothGattDescriptor descriptor, int status) {
+      if (isFinished() || index >= items.size() || descriptor != items.get(index).cccd) {
+         return false;
+      }
+      
+      final Item item = items.get(index);
+      
+      if (status != BluetoothGatt.GATT_SUCCESS) {
+         gatt.setCharacteristicNotification(item.cccd.getCharacteristic(), false);
+         
+         fail(status, String.format("Writing the CCCD of '%s' of '%s' failed with status %d",
+            item.characteristicUuid, getAddress(), status));
+      } else {
+         writeNext();
+      }
+      
+      return true;
+   }
+   
+   @Override
+   void fail(int status, String error) {
+      finish(status, error, createResult());
+   }
+   
+   private void writeNext() {
+      index++;
+      
+      if (index == items.size()) {
+         finish(BluetoothGatt.GATT_SUCCESS, null, createResult());
+      } else {
+         final Item item = items.get(index);
+         
+         if (!gatt.setCharacteristicNotification(item.cccd.getCharacteristic(), item.isEnabled())) {
+            fail(BluetoothGatt.GATT_FAILURE, String.format(
+               "BluetoothGatt.setCharacteristicNotification() failed for '%s' of '%s'",
+                  item.characteristicUuid, getAddress()));
+         } else if (!item.cccd.setValue(item.value) || !gatt.writeDescriptor(item.cccd)) {
+            fail(BluetoothGatt.GATT_FAILURE, String.format(
+               "BluetoothGatt.writeDescriptor() failed for the CCCD of '%s' of '%s'",
+                  item.characteristicUuid, getAddress()));
+         } else {
+            operationIssued();
+         }
+      }
+   }
+   
+   private WritableMap createResult() {
+      final WritableArray completed = Arguments.createArray();
+      
+      for (Item item : getCompletedItems()) {
+         final WritableMap subscription = Arguments.createMap();
+         
+         subscription.putString("serviceUuid", item.serviceUuid);
+         subscription.putString("characteristicUuid", item.characteristicUuid);
+         subscription.putString("mode", item.getMode());
+         
+         completed.pushMap(subscription);
+      }
+      
+      final WritableMap result = Arguments.createMap();
+      
+      result.putInt("count", items.size());
+      result.putArray("completed", completed);
+      
+      return result;
+   }
+}
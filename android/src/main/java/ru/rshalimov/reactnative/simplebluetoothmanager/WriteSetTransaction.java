@@ -0,0 +1,162 @@
+package ru.rshalimov.reactnative.simplebluetoothmanager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import java.util.Arrays;
+import java.util.List;
+
+final class WriteSetTransaction extends GattTransaction {
+   static final class Entry {
+      final BluetoothGattCharacteristic characteristic;
+      final byte [] value;
+      
+      Entry(BluetoothGattCharacteristic characteristic, byte [] value) {
+         this.characteristic = characteristic;
+         this.value = value;
+      }
+      
+      @Override
+      public String toString() {
+         return String.format("(%s, %s, %s)",
+            characteristic.getService().getUuid(),
+            characteristic.getUuid(),
+            Arrays.toString(value));
+      }
+   }
+   
+   private final List <Entry> entries;
+   private final boolean reliable;
+   
+   private final Runnable retryWrite = new Runnable() {
+      @Override
+      public void run() {
+         if (!isFinished()) {
+            write();
+         }
+      }
+   };
+   
+   private int index = -1;
+   private boolean reliableWriteBegun;
+   
+   WriteSetTransaction(
+      BluetoothGatt gatt,
+      List <Entry> entries,
+      boolean reliable,
+      Callback callback)
+   {
+      super(gatt, callback);
+      
+      this.entries = entries;
+      this.reliable = reliable;
+   }
+   
+   @Override
+   void start() {
+      if (reliable) {
+         if (!gatt.beginReliableWrite()) {
+            throw new IllegalStateException(String.format(
+               "BluetoothGatt.beginReliableWrite() failed for '%s'", getAddress()));
+         }
+         
+         reliableWriteBegun = true;
+      }
+      
+      writeNext();
+   }
+   
+   @Override
+   boolean onCharacteristicWrite(BluetoothGattCharacteristic ch, int status) {
+      if (isFinished() || index >= entries.size()
+         || ch != entries.get(index).characteristic)
+      {
+         return false;
+      }
+      
+      final Entry entry = entries.get(index);
+      
+      if (status != BluetoothGatt.GATT_SUCCESS) {
+         fail(status, String.format("Writing %s to '%s' failed",
+            entry, getAddress()));
+      } else if (reliable && !Arrays.equals(ch.getValue(), entry.value)) {
+         fail(BluetoothGatt.GATT_FAILURE, String.format(
+            "Reliable write verification of %s failed for '%s'",
+               entry, getAddress()));
+      } else {
+         writeNext();
+      }
+      
+      return true;
+   }
+   
+   @Override
+   boolean onReliableWriteCompleted(int status) {
+      if (isFinished() || !reliableWriteBegun) {
+         return false;
+      }
+      
+      reliableWriteBegun = false;
+      
+      if (status == BluetoothGatt.GATT_SUCCESS) {
+         finish(status, null, createResult());
+      } else {
+         fail(status, String.format(
+            "Reliable write execution failed for '%s'", getAddress()));
+      }
+      
+      return true;
+   }
+   
+   @Override
+   void fail(int status, String error) {
+      if (reliableWriteBegun) {
+         reliableWriteBegun = false;
+         
+         gatt.abortReliableWrite();
+      }
+      
+      finish(status, error, createResult());
+   }
+   
+   private void writeNext() {
+      index++;
+      
+      write();
+   }
+   
+   private void write() {
+      if (index < entries.size()) {
+         final Entry entry = entries.get(index);
+         
+         if (!entry.characteristic.setValue(entry.value)
+            || !gatt.writeCharacteristic(entry.characteristic))
+         {
+            if (!retryWhenBusy(retryWrite)) {
+               fail(BluetoothGatt.GATT_FAILURE, String.format(
+                  "BluetoothGatt.writeCharacteristic() failed for %s of '%s'",
+                     entry, getAddress()));
+            }
+         } else {
+            operationIssued();
+         }
+      } else if (!reliable) {
+         finish(BluetoothGatt.GATT_SUCCESS, null, createResult());
+      } else if (!gatt.executeReliableWrite()) {
+         fail(BluetoothGatt.GATT_FAILURE, String.format(
+            "BluetoothGatt.executeReliableWrite() failed for '%s'", getAddress()));
+      }
+   }
+   
+   private WritableMap createResult() {
+      final WritableMap result = Arguments.createMap();
+      
+      result.putInt("count", entries.size());
+      result.putInt("written", Math.min(index, entries.size()));
+      
+      return result;
+   }
+}
@@ -1,13 +1,17 @@
+import BinaryUtils from "./js/BinaryUtils";
 import Bluetooth from "./js/Bluetooth";
 import BluetoothDevice from "./js/BluetoothDevice";
 import BluetoothDeviceQueue from "./js/BluetoothDeviceQueue";
+import ScanBatch from "./js/ScanBatch";
 import AutoconnectableDevice from "./js/proxies/AutoconnectableDevice";
 import BluetoothDeviceProxy from "./js/proxies/BluetoothDeviceProxy";
 
 export {
   AutoconnectableDevice,
+  BinaryUtils,
   Bluetooth,
   BluetoothDevice,
   BluetoothDeviceProxy,
-  BluetoothDeviceQueue
+  BluetoothDeviceQueue,
+  ScanBatch
 };
@@ -459,6 +459,10 @@ enum Errors : Error {
             "LOW_POWER": -1,
             "BALANCED": -1,
             "LOW_LATENCY": -1
+         ],
+         "batchFormat": [
+            "ROWS": "rows",
+            "COLUMNAR": "columnar"
          ]]
    }
    
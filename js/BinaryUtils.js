@@ -0,0 +1,74 @@
+import { StaticUtils } from "react-native-common-utils";
+
+const alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+const lookup = new Uint8Array(128);
+
+for (let i = 0; i < alphabet.length; ++i) {
+  lookup[alphabet.charCodeAt(i)] = i;
+}
+
+export default class BinaryUtils {
+  static fromBase64(base64) {
+    const padding = base64.endsWith("==") ? 2 : base64.endsWith("=") ? 1 : 0;
+    const bytes = new Uint8Array(base64.length / 4 * 3 - padding);
+    
+    for (let i = 0, j = 0; i < base64.length; i += 4) {
+      const n = lookup[base64.charCodeAt(i)] << 18
+        | lookup[base64.charCodeAt(i + 1)] << 12
+        | lookup[base64.charCodeAt(i + 2)] << 6
+        | lookup[base64.charCodeAt(i + 3)];
+      
+      bytes[j++] = n >> 16;
+      
+      if (j < bytes.length) {
+        bytes[j++] = n >> 8 & 0xFF;
+      }
+      
+      if (j < bytes.length) {
+        bytes[j++] = n & 0xFF;
+      }
+    }
+    
+    return bytes.buffer;
+  }
+  
+  static isBinary(value) {
+    return value instanceof ArrayBuffer || ArrayBuffer.isView(value);
+  }
+  
+  static toArray(data) {
+    return Array.from(BinaryUtils.__toBytes(data));
+  }
+  
+  static toBase64(data) {
+    const bytes = BinaryUtils.__toBytes(data);
+    
+    let result = "";
+    
+    for (let i = 0; i < bytes.length; i += 3) {
+      const n = bytes[i] << 16
+        | (i + 1 < bytes.length ? bytes[i + 1] << 8 : 0)
+        | (i + 2 < bytes.length ? bytes[i + 2] : 0);
+      
+      result += alphabet[n >> 18 & 63]
+        + alphabet[n >> 12 & 63]
+        + (i + 1 < bytes.length ? alphabet[n >> 6 & 63] : "=")
+        + (i + 2 < bytes.length ? alphabet[n & 63] : "=");
+    }
+    
+    return result;
+  }
+  
+  static toNativeValue(value) {
+    if (!BinaryUtils.isBinary(value)) {
+      return value;
+    }
+    
+    return StaticUtils.isAndroid() ? BinaryUtils.toBase64(value) : BinaryUtils.toArray(value);
+  }
+  
+  static __toBytes(data) {
+    return data instanceof ArrayBuffer ? new Uint8Array(data)
+      : new Uint8Array(data.buffer, data.byteOffset, data.byteLength);
+  }
+}
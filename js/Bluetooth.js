@@ -1,13 +1,19 @@
 import {
+  AppRegistry,
   NativeModules,
   NativeEventEmitter
 } from "react-native";
 import { StaticUtils } from "react-native-common-utils";
+import BinaryUtils from "./BinaryUtils";
+import ScanBatch from "./ScanBatch";
 
 const bt = NativeModules.SimpleBluetoothManager;
 const emitter = new NativeEventEmitter(bt);
 
 export default class Bluetooth {
+  static backgroundScanTask = bt.backgroundScanTask;
+  static batchFormat = bt.batchFormat;
+  static eventSchedulingPolicy = bt.eventSchedulingPolicy;
   static scanMode = bt.scanMode;
   
   __allowDuplicates = false;
@@ -27,14 +33,70 @@ export default class Bluetooth {
     this.__listeners.push(this.addOnScanResultListener(this.__onScanResult.bind(this)));
   }
   
+  static registerBackgroundScanTask(task) {
+    AppRegistry.registerHeadlessTask(Bluetooth.backgroundScanTask, () => task);
+  }
+  
+  addOnBackgroundScanResultListener(listener) {
+    return emitter.addListener(bt.events.leScanCallback.BACKGROUND_SCAN_RESULT, listener);
+  }
+  
+  addOnL2capClosedListener(listener) {
+    return emitter.addListener(bt.events.l2cap.L2CAP_CLOSED, listener);
+  }
+  
+  addOnL2capDataListener(listener) {
+    return emitter.addListener(bt.events.l2cap.L2CAP_DATA, listener);
+  }
+  
   addOnScanResultListener(listener) {
     return emitter.addListener(bt.events.leScanCallback.SCAN_RESULT, listener);
   }
   
+  addOnScanStateListener(listener) {
+    return emitter.addListener(bt.events.leScanCallback.SCAN_STATE, listener);
+  }
+  
+  broadcastWriteCharacteristic(ids, serviceUuid, characteristicUuid, dataAndOptions) {
+    if (BinaryUtils.isBinary(dataAndOptions.value)) {
+      dataAndOptions = {...dataAndOptions, value: BinaryUtils.toNativeValue(dataAndOptions.value)};
+    }
+    
+    return bt.broadcastWriteCharacteristic(ids, serviceUuid, characteristicUuid, dataAndOptions);
+  }
+  
+  clearCache() {
+    return bt.clearCache();
+  }
+  
+  clearDevices() {
+    return bt.clearDevices();
+  }
+  
+  configureCache(serviceUuid, characteristicUuid, options = {}) {
+    return bt.configureCache(serviceUuid, characteristicUuid, options);
+  }
+  
+  configureDeviceRegistry(options = {}) {
+    return bt.configureDeviceRegistry(options);
+  }
+  
+  getCacheStatistics() {
+    return bt.getCacheStatistics();
+  }
+  
   getDiscoveredDevices() {
     return [...this.__discoveredDevices];
   }
   
+  getEventStatistics() {
+    return bt.getEventStatistics();
+  }
+  
+  isBackgroundScanActive() {
+    return bt.isBackgroundScanActive();
+  }
+  
   isEnabled() {
     return bt.isEnabled();
   }
@@ -47,10 +109,26 @@ export default class Bluetooth {
     return this.__scanStarted;
   }
   
+  queryDevices(query = {}) {
+    return bt.queryDevices(query);
+  }
+  
+  releaseScan(clientId) {
+    return bt.releaseScan(clientId);
+  }
+  
   removeAllListeners() {
     this.__listeners.forEach(listener => listener.remove());
   }
   
+  requestScan(clientId, options = this.__scanOptions) {
+    return bt.requestScan(clientId, options);
+  }
+  
+  restoreConnections() {
+    return bt.restoreConnections();
+  }
+  
   setCommonScanOptions(deviceName, scanMode = Bluetooth.scanMode.LOW_LATENCY) {
     this.setScanOptions({
       filters: [{deviceName}],
@@ -58,6 +136,10 @@ export default class Bluetooth {
     });
   }
   
+  setEventSchedulingOptions(options = {}) {
+    return bt.setEventSchedulingOptions(options);
+  }
+  
   setMaxDeviceCountToStore(maxDeviceCountToStore) {
     this.__maxDeviceCountToStore = maxDeviceCountToStore;
   }
@@ -74,6 +156,18 @@ export default class Bluetooth {
     this.__scanOptions = scanOptions;
   }
   
+  setScanSchedule(options = {}) {
+    return bt.setScanSchedule(options);
+  }
+  
+  startBackgroundScan(options = {}) {
+    return bt.startBackgroundScan(options);
+  }
+  
+  startForegroundService(options = {}) {
+    return bt.startForegroundService(options);
+  }
+  
   async startScan() {
     if (this.__scanStarted) {
       throw new Error("Scan already started");
@@ -128,6 +222,14 @@ export default class Bluetooth {
     }
   }
   
+  stopBackgroundScan() {
+    return bt.stopBackgroundScan();
+  }
+  
+  stopForegroundService() {
+    return bt.stopForegroundService();
+  }
+  
   async stopScan(throwIfStopped) {
     let result = true;
     
@@ -153,7 +255,9 @@ export default class Bluetooth {
   }
   
   __onScanResult(data) {
-    for (let result of data.results) {
+    const results = data.format === Bluetooth.batchFormat.COLUMNAR ? new ScanBatch(data) : data.results;
+    
+    for (let result of results) {
       if (this.__discoveredDevices.length === this.__maxDeviceCountToStore) {
         break;
       }
@@ -3,6 +3,7 @@ import {
   EventHandlingHelper,
   StaticUtils
 } from "react-native-common-utils";
+import BinaryUtils from "./BinaryUtils";
 
 const bt = NativeModules.SimpleBluetoothManager;
 
@@ -28,16 +29,32 @@ export default class BluetoothDevice {
     this.setConnectionOptions({});
   }
   
+  async abortReliableWrite() {
+    this._throwIfShutdownRequested();
+    
+    await bt.abortReliableWrite(this.getId());
+  }
+  
   areServicesDiscovered() {
     return !!this._servicesDiscovered;
   }
   
+  async beginReliableWrite() {
+    this._throwIfShutdownRequested();
+    
+    await bt.beginReliableWrite(this.getId());
+  }
+  
   async closeGatt() {
     this._throwIfShutdownRequested();
     
     await this._closeGatt();
   }
   
+  async closeL2capChannel(channelId) {
+    await bt.closeL2capChannel(channelId);
+  }
+  
   async connect() {
     this._throwIfShutdownRequested();
     
@@ -65,6 +82,12 @@ export default class BluetoothDevice {
     await bt.discoverServices(this.getId(), useCache);
   }
   
+  async executeReliableWrite() {
+    this._throwIfShutdownRequested();
+    
+    await bt.executeReliableWrite(this.getId());
+  }
+  
   flushRequests(read) {
     if (read || !arguments.length) {
       this._requests.read.length = 0;
@@ -97,12 +120,24 @@ export default class BluetoothDevice {
     return this._connectionOptions.invokeBTGattConnect && StaticUtils.isAndroid() ? await this.connect() : undefined;
   }
   
+  async openL2capChannel(psm, options = {}) {
+    this._throwIfShutdownRequested();
+    
+    return await bt.openL2capChannel(this.getId(), psm, options);
+  }
+  
   async readCharacteristic(serviceUuid, characteristicUuid, options) {
     this._throwIfShutdownRequested();
     
     await this._safeReadWrite(true, [serviceUuid, characteristicUuid, options]);
   }
   
+  async readCharacteristics(items) {
+    this._throwIfShutdownRequested();
+    
+    return await bt.readCharacteristics(this.getId(), items);
+  }
+  
   async readDescriptor(
     serviceUuid,
     characteristicUuid,
@@ -114,6 +149,12 @@ export default class BluetoothDevice {
     await this._safeReadWrite(true, [serviceUuid, characteristicUuid, descriptorUuid, options]);
   }
   
+  async readRemoteRssi() {
+    this._throwIfShutdownRequested();
+    
+    await bt.readRemoteRssi(this.getId());
+  }
+  
   async readSerialNumber() {
     await this.readCharacteristic(
       StaticUtils.isAndroid() ? "0000180A-0000-1000-8000-00805F9B34FB" : "180A",
@@ -123,6 +164,25 @@ export default class BluetoothDevice {
     );
   }
   
+  async requestConnectionPriority(priority) {
+    this._throwIfShutdownRequested();
+    
+    await bt.requestConnectionPriority(this.getId(), priority);
+  }
+  
+  async runScript(steps, options = {}) {
+    this._throwIfShutdownRequested();
+    
+    const variables = {};
+    
+    for (const [name, value] of Object.entries(options.variables || {})) {
+      variables[name] = BinaryUtils.isBinary(value) ? BinaryUtils.toBase64(value) : value;
+    }
+    
+    return await bt.runScript(this.getId(), steps.map(step => BinaryUtils.isBinary(step.value) ?
+      {...step, value: BinaryUtils.toArray(step.value)} : step), {...options, variables});
+  }
+  
   async setCharacteristicNotification(
     serviceUuid,
     characteristicUuid,
@@ -132,25 +192,13 @@ export default class BluetoothDevice {
     this._throwIfShutdownRequested();
     
     if (!enable) {
-      const position = this._notifiedCharacteristics[serviceUuid].indexOf(characteristicUuid);
-      
-      if (position !== -1) {
-        this._notifiedCharacteristics[serviceUuid].splice(position, 1);
-        
-        if (!this._notifiedCharacteristics[serviceUuid].length) {
-          delete this._notifiedCharacteristics[serviceUuid];
-        }
-      }
+      this._removeNotifiedCharacteristic(serviceUuid, characteristicUuid);
     }
     
     await this._setCharacteristicNotification(serviceUuid, characteristicUuid, enable, options);
     
     if (enable) {
-      if (!this._notifiedCharacteristics[serviceUuid]) {
-        this._notifiedCharacteristics[serviceUuid] = [];
-      }
-      
-      this._notifiedCharacteristics[serviceUuid].push(characteristicUuid);
+      this._addNotifiedCharacteristic(serviceUuid, characteristicUuid);
     }
   }
   
@@ -241,6 +289,50 @@ export default class BluetoothDevice {
     }
   }
   
+  async startAggregation(serviceUuid, characteristicUuid, options = {}) {
+    this._throwIfShutdownRequested();
+    
+    await bt.startAggregation(this.getId(), serviceUuid, characteristicUuid, options);
+  }
+  
+  async startLinkMonitor(options = {}) {
+    this._throwIfShutdownRequested();
+    
+    return await bt.startLinkMonitor(this.getId(), options);
+  }
+  
+  async stopAggregation(serviceUuid, characteristicUuid) {
+    return await bt.stopAggregation(this.getId(), serviceUuid, characteristicUuid);
+  }
+  
+  async stopLinkMonitor() {
+    return await bt.stopLinkMonitor(this.getId());
+  }
+  
+  async subscribe(items) {
+    this._throwIfShutdownRequested();
+    
+    const result = await bt.subscribe(this.getId(), items);
+    
+    for (const {serviceUuid, characteristicUuid} of result.completed) {
+      this._addNotifiedCharacteristic(serviceUuid, characteristicUuid);
+    }
+    
+    return this._checkSubscriptionResult(result);
+  }
+  
+  async unsubscribe(items) {
+    this._throwIfShutdownRequested();
+    
+    const result = await bt.unsubscribe(this.getId(), items);
+    
+    for (const {serviceUuid, characteristicUuid} of result.completed) {
+      this._removeNotifiedCharacteristic(serviceUuid, characteristicUuid);
+    }
+    
+    return this._checkSubscriptionResult(result);
+  }
+  
   async writeCharacteristic(
     serviceUuid,
     characteristicUuid,
@@ -249,6 +341,10 @@ export default class BluetoothDevice {
   {
     this._throwIfShutdownRequested();
     
+    if (BinaryUtils.isBinary(dataAndOptions.value)) {
+      dataAndOptions = {...dataAndOptions, value: BinaryUtils.toNativeValue(dataAndOptions.value)};
+    }
+    
     const args = [
       serviceUuid,
       characteristicUuid,
@@ -283,9 +379,45 @@ export default class BluetoothDevice {
   {
     this._throwIfShutdownRequested();
     
+    if (BinaryUtils.isBinary(dataAndOptions.value)) {
+      dataAndOptions = {...dataAndOptions, value: BinaryUtils.toNativeValue(dataAndOptions.value)};
+    }
+    
     await this._safeReadWrite(false, [serviceUuid, characteristicUuid, descriptorUuid, dataAndOptions]);
   }
   
+  async writeL2capChannel(channelId, data) {
+    return await bt.writeL2capChannel(channelId,
+      BinaryUtils.isBinary(data) ? BinaryUtils.toBase64(data) : data);
+  }
+  
+  async writeSet(entries, options = {}) {
+    this._throwIfShutdownRequested();
+    
+    await bt.writeSet(this.getId(), entries.map(entry => BinaryUtils.isBinary(entry.value) ?
+      {...entry, value: BinaryUtils.toNativeValue(entry.value)} : entry), options);
+  }
+  
+  _addNotifiedCharacteristic(serviceUuid, characteristicUuid) {
+    if (!this._notifiedCharacteristics[serviceUuid]) {
+      this._notifiedCharacteristics[serviceUuid] = [];
+    }
+    
+    this._notifiedCharacteristics[serviceUuid].push(characteristicUuid);
+  }
+  
+  _checkSubscriptionResult(result) {
+    if (result.error) {
+      const error = new Error(result.error);
+      
+      error.completed = result.completed;
+      
+      throw error;
+    }
+    
+    return result;
+  }
+  
   async _closeGatt() {
     await bt.closeGatt(this.getId());
   }
@@ -308,6 +440,10 @@ export default class BluetoothDevice {
           
           this._connected = !data.error;
           
+          if (data.restored) {
+            this._notifiedCharacteristics = data.notifications;
+          }
+          
           if (this.isConnected() && this._connectionOptions.autoDiscoverServices) {
             await this.discoverServices(this._connectionOptions.autoDiscoverServicesUseCache);
           }
@@ -362,6 +498,18 @@ export default class BluetoothDevice {
     this._eventHandlingHelper.invokeListeners(...args);
   }
   
+  _removeNotifiedCharacteristic(serviceUuid, characteristicUuid) {
+    const position = (this._notifiedCharacteristics[serviceUuid] || []).indexOf(characteristicUuid);
+    
+    if (position !== -1) {
+      this._notifiedCharacteristics[serviceUuid].splice(position, 1);
+      
+      if (!this._notifiedCharacteristics[serviceUuid].length) {
+        delete this._notifiedCharacteristics[serviceUuid];
+      }
+    }
+  }
+  
   async _safeReadWrite(read, params = [], timeout, lastChunk = true) {
     const operation = read ? "read" : "write";
     const requests = this._requests[operation];
@@ -0,0 +1,64 @@
+import BinaryUtils from "./BinaryUtils";
+
+export default class ScanBatch {
+  __scanRecords = null;
+  
+  constructor(data) {
+    this.__data = data;
+  }
+  
+  get length() {
+    return this.__data.count;
+  }
+  
+  getId(index) {
+    return this.__data.ids[index];
+  }
+  
+  getName(index) {
+    const nameIndex = this.__data.nameIndexes[index];
+    
+    return nameIndex < 0 ? null : this.__data.names[nameIndex];
+  }
+  
+  getResult(index) {
+    const name = this.getName(index);
+    
+    return {
+      device: {
+        id: this.getId(index),
+        name
+      },
+      rssi: this.getRssi(index),
+      scanRecord: {
+        bytes: Array.from(this.getScanRecord(index)),
+        name
+      },
+      timestamp: this.getTimestamp(index)
+    };
+  }
+  
+  getRssi(index) {
+    return this.__data.rssis[index];
+  }
+  
+  getScanRecord(index) {
+    if (!this.__scanRecords) {
+      this.__scanRecords = new Uint8Array(BinaryUtils.fromBase64(this.__data.scanRecords));
+    }
+    
+    const offsets = this.__data.scanRecordOffsets;
+    
+    return this.__scanRecords.subarray(offsets[index], offsets[index + 1]);
+  }
+  
+  getTimestamp(index) {
+    return this.__data.timestamps[index];
+  }
+  
+  *[Symbol.iterator]() {
+    for (let index = 0; index < this.length; index++) {
+      yield this.getResult(index);
+    }
+  }
+}